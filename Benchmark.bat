@@ -0,0 +1,2 @@
+java -cp BST_SkipList.jar Benchmark
+pause
\ No newline at end of file
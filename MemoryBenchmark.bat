@@ -0,0 +1,2 @@
+java -cp BST_SkipList.jar MemoryBenchmark
+pause
\ No newline at end of file
@@ -1,5 +1,10 @@
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * AVLTree.java
@@ -8,11 +13,9 @@ import java.util.Queue;
  * 04/03/2018
  */
 
-public class AVLTree implements CommonOperations {
+public class AVLTree implements CommonOperations, IntOrderedMap {
 
     private AVLTreeNode root;
-    // Store the node to be inserted or to be removed
-    private AVLTreeNode toReturnNode;
 
     /**
      * Constructor
@@ -22,6 +25,125 @@ public class AVLTree implements CommonOperations {
         this.root = null;
     }
 
+    /**
+     * Constructor
+     * Build the AVL tree from the sorted key-value pairs bottom-up in O(n)
+     * without any rotation, values[i] is the value of keys[i]
+     */
+    public AVLTree(int[] keys, String[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("Keys and values should have the same length: "
+                    + keys.length + " != " + values.length);
+        }
+        for (int i = 1; i < keys.length; i++) {
+            if (keys[i - 1] >= keys[i]) {
+                throw new IllegalArgumentException("Keys should be strictly increasing: "
+                        + keys[i - 1] + " >= " + keys[i]);
+            }
+        }
+        this.root = build(keys, values, 0, keys.length);
+    }
+
+    /**
+     * Constructor
+     * Build the AVL tree from the first "count" entries of the iterator,
+     * which must be in strictly increasing key order, bottom-up in O(n)
+     */
+    public AVLTree(Iterator<? extends Map.Entry<Integer, String>> entries, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count should not be negative: " + count);
+        }
+        this.root = build(entries, count, new long[]{Long.MIN_VALUE});
+    }
+
+    /**
+     * Constructor
+     * Initialize the AVL tree with a balanced subtree
+     */
+    private AVLTree(AVLTreeNode root) {
+        this.root = root;
+    }
+
+    /**
+     * Build the subtree of keys[from, to)
+     * The middle key is the root, so the sizes of two subtrees differ by at most 1
+     */
+    private AVLTreeNode build(int[] keys, String[] values, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        AVLTreeNode left = build(keys, values, from, middle);
+        AVLTreeNode right = build(keys, values, middle + 1, to);
+        AVLTreeNode node = new AVLTreeNode(keys[middle], values[middle], left, right);
+        node.setHeight(max(getHeight(left), getHeight(right)) + 1);
+        return node;
+    }
+
+    /**
+     * Build the subtree of the next "count" entries in order
+     * The left subtree takes count / 2 entries, so it is built the same way as from an array
+     * last[0] is the last key taken from the iterator
+     */
+    private AVLTreeNode build(Iterator<? extends Map.Entry<Integer, String>> entries, int count, long[] last) {
+        if (count == 0) {
+            return null;
+        }
+        AVLTreeNode left = build(entries, count / 2, last);
+        if (!entries.hasNext()) {
+            throw new IllegalArgumentException("The iterator has fewer entries than the count");
+        }
+        Map.Entry<Integer, String> entry = entries.next();
+        int key = entry.getKey();
+        if (last[0] >= key) {
+            throw new IllegalArgumentException("Keys should be strictly increasing: " + last[0] + " >= " + key);
+        }
+        last[0] = key;
+        AVLTreeNode right = build(entries, count - count / 2 - 1, last);
+        AVLTreeNode node = new AVLTreeNode(key, entry.getValue(), left, right);
+        node.setHeight(max(getHeight(left), getHeight(right)) + 1);
+        return node;
+    }
+
+    /**
+     * Relink all the nodes into a perfectly balanced AVL tree in O(n),
+     * e.g. after a lot of insertions and removals
+     */
+    public void rebuild() {
+        AVLTreeNode[] nodes = new AVLTreeNode[getSize()];
+        // Inorder traversal with a stack
+        AVLTreeNode[] stack = new AVLTreeNode[getHeight(root)];
+        int top = 0;
+        int count = 0;
+        AVLTreeNode node = root;
+        while (node != null || top > 0) {
+            while (node != null) {
+                stack[top++] = node;
+                node = node.getLeftChild();
+            }
+            node = stack[--top];
+            nodes[count++] = node;
+            node = node.getRightChild();
+        }
+        root = relink(nodes, 0, nodes.length);
+    }
+
+    /**
+     * Relink nodes[from, to) the same way as build
+     */
+    private AVLTreeNode relink(AVLTreeNode[] nodes, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        AVLTreeNode node = nodes[middle];
+        node.setLeftChild(relink(nodes, from, middle));
+        node.setRightChild(relink(nodes, middle + 1, to));
+        node.setHeight(max(getHeight(node.getLeftChild()), getHeight(node.getRightChild())) + 1);
+        node.setSize(to - from);
+        return node;
+    }
+
     public AVLTreeNode getRoot() {
         return root;
     }
@@ -38,13 +160,13 @@ public class AVLTree implements CommonOperations {
 
     /**
      * Get the size of the AVL subtree
+     * Every node keeps the size of its subtree, so it is O(1)
      */
-    private int getSize(AVLTreeNode node) {
-        if (node == null) {
-            return 0;
-        } else {
-            return (getSize(node.getLeftChild()) + getSize(node.getRightChild()) + 1);
+    public int getSize(AVLTreeNode node) {
+        if (node != null) {
+            return node.getSize();
         }
+        return 0;
     }
 
     /**
@@ -85,6 +207,8 @@ public class AVLTree implements CommonOperations {
 
         a.setHeight(max(getHeight(a.getLeftChild()), getHeight(a.getRightChild())) + 1);
         b.setHeight(max(getHeight(a), getHeight(b.getRightChild())) + 1);
+        a.setSize(getSize(a.getLeftChild()) + getSize(a.getRightChild()) + 1);
+        b.setSize(getSize(a) + getSize(b.getRightChild()) + 1);
 
         return b;
     }
@@ -112,6 +236,8 @@ public class AVLTree implements CommonOperations {
 
         a.setHeight(max(getHeight(a.getLeftChild()), getHeight(a.getRightChild())) + 1);
         b.setHeight(max(getHeight(b.getLeftChild()), getHeight(a)) + 1);
+        a.setSize(getSize(a.getLeftChild()) + getSize(a.getRightChild()) + 1);
+        b.setSize(getSize(b.getLeftChild()) + getSize(a) + 1);
 
         return b;
     }
@@ -165,20 +291,25 @@ public class AVLTree implements CommonOperations {
      */
     @Override
     public AVLTreeNode findElement(Integer key) {
+        return findElement(root, key.intValue());
+    }
+
+    @Override
+    public AVLTreeNode findElement(int key) {
         return findElement(root, key);
     }
 
     /**
      * Recursive findElement
      */
-    private AVLTreeNode findElement(AVLTreeNode node, Integer key) {
+    private AVLTreeNode findElement(AVLTreeNode node, int key) {
         // If node does not exist,
         // then return null
         if (node == null) {
             return null;
         }
 
-        int cmp = key.compareTo(node.getKey());
+        int cmp = Integer.compare(key, node.getKey());
         // Search the left subtree
         if (cmp < 0) {
             return findElement(node.getLeftChild(), key);
@@ -201,6 +332,11 @@ public class AVLTree implements CommonOperations {
      */
     @Override
     public boolean findElementBoolean(Integer key) {
+        return findElementBoolean(key.intValue());
+    }
+
+    @Override
+    public boolean findElementBoolean(int key) {
         if (findElement(key) != null) {
             return true;
         } else {
@@ -210,16 +346,21 @@ public class AVLTree implements CommonOperations {
 
     /**
      * Find the closest key after the "key"
-     * If it does not exits, return 0;
+     * If it does not exits, return NO_KEY;
      */
     @Override
     public Integer closestKeyAfter(Integer key) {
+        return closestKeyAfter(key.intValue());
+    }
+
+    @Override
+    public int closestKeyAfter(int key) {
         // CNA represents the closest node after the node
-        AVLTreeNode CNA = closestNodeAfter(root, key);
+        AVLTreeNode CNA = higher(key);
         if (CNA != null) {
             return CNA.getKey();
         } else {
-            return 0;
+            return NO_KEY;
         }
     }
 
@@ -229,178 +370,171 @@ public class AVLTree implements CommonOperations {
      */
     @Override
     public AVLTreeNode closestNodeAfter(Integer key) {
-        // CNA represents the closest node after the node
-        AVLTreeNode CNA = closestNodeAfter(root, key);
-        return CNA;
+        return higher(key.intValue());
+    }
+
+    @Override
+    public AVLTreeNode closestNodeAfter(int key) {
+        return higher(key);
     }
 
     /**
-     * Get the closest node after the node whose key == "key"
+     * Get the node with the smallest key >= "key"
+     * If it does not exist, return null
      */
-    private AVLTreeNode closestNodeAfter(AVLTreeNode node, Integer key) {
-        // If the node does not exist,
-        // then return null
-        if (node == null) {
-            return null;
+    public AVLTreeNode ceiling(int key) {
+        // CNA records the smallest node >= key met on the way down
+        AVLTreeNode CNA = null;
+        AVLTreeNode node = root;
+        while (node != null) {
+            // We find the node
+            if (key == node.getKey()) {
+                return node;
+            }
+            // The node is a candidate, look for a smaller one in the left subtree
+            else if (key < node.getKey()) {
+                CNA = node;
+                node = node.getLeftChild();
+            }
+            // The node and its left subtree are all < key
+            else {
+                node = node.getRightChild();
+            }
         }
+        return CNA;
+    }
 
-        // CNA represents the closest node after the node
-        // CNA will go down from root to the leaf
-        // and record the smaller CNA
+    /**
+     * Get the node with the smallest key > "key"
+     * If it does not exist, return null
+     */
+    public AVLTreeNode higher(int key) {
+        // CNA records the smallest node > key met on the way down
         AVLTreeNode CNA = null;
-        AVLTreeNode temp = null;
-
-        int cmp = key.compareTo(node.getKey());
-        // Search the left subtree
-        if (cmp < 0) {
-            temp = closestNodeAfter(node.getLeftChild(), key);
-            // If temp is null, that means the CNA is not in the left subtree
-            // We should return the node(temp's parent) because node.key > key
-            CNA =  temp != null ? temp : node;
+        AVLTreeNode node = root;
+        while (node != null) {
+            // The node is a candidate, look for a smaller one in the left subtree
+            if (key < node.getKey()) {
+                CNA = node;
+                node = node.getLeftChild();
+            }
+            // The node and its left subtree are all <= key
+            else {
+                node = node.getRightChild();
+            }
         }
-        // Search the right subtree
-        else if (cmp > 0) {
-            temp = closestNodeAfter(node.getRightChild(), key);
-            // If temp is null, that means the CNA is not in the right subtree
-            // We should skip the node(temp's parent)
-            // return the smallest previous recorded CNA(previous ancestor) if it exists
-            CNA =  temp != null ? temp : CNA;
+        return CNA;
+    }
+
+    /**
+     * Get the node with the biggest key <= "key"
+     * If it does not exist, return null
+     */
+    public AVLTreeNode floor(int key) {
+        // CNB records the biggest node <= key met on the way down
+        AVLTreeNode CNB = null;
+        AVLTreeNode node = root;
+        while (node != null) {
+            // We find the node
+            if (key == node.getKey()) {
+                return node;
+            }
+            // The node is a candidate, look for a bigger one in the right subtree
+            else if (key > node.getKey()) {
+                CNB = node;
+                node = node.getRightChild();
+            }
+            // The node and its right subtree are all > key
+            else {
+                node = node.getLeftChild();
+            }
         }
-        // We find the node
-        else {
-            // If the node has right child
-            if (node.getRightChild() != null) {
-                CNA = node.getRightChild();
+        return CNB;
+    }
+
+    /**
+     * Get the node with the biggest key < "key"
+     * If it does not exist, return null
+     */
+    public AVLTreeNode lower(int key) {
+        // CNB records the biggest node < key met on the way down
+        AVLTreeNode CNB = null;
+        AVLTreeNode node = root;
+        while (node != null) {
+            // The node is a candidate, look for a bigger one in the right subtree
+            if (key > node.getKey()) {
+                CNB = node;
+                node = node.getRightChild();
             }
-            // If the node has not right child
-            // Return the CNA record
+            // The node and its right subtree are all >= key
             else {
-                // Do nothing, return the CNA record
+                node = node.getLeftChild();
             }
         }
-        return CNA;
+        return CNB;
+    }
+
+    /**
+     * Get the node with the smallest key
+     * If the AVL tree is empty, return null
+     */
+    public AVLTreeNode first() {
+        return minimumNode(root);
+    }
+
+    /**
+     * Get the node with the biggest key
+     * If the AVL tree is empty, return null
+     */
+    public AVLTreeNode last() {
+        return maximumNode(root);
     }
 
     /**
      * Insert the key-value pair into the AVL tree
-     * Return the replicated node with only key and value
-     * Its leftChild and rightChild are all "null"
-     * If we need know its accurate leftChild and rightChild,
-     * then we should use findElement operation
+     * Return the new node
      */
     @Override
     public AVLTreeNode insertElement(Integer key, String value) {
-        // toReturnNode stores the node to be inserted(a fake one)
-        toReturnNode = null;
-        root = insertElement(root, key, value);
-        return toReturnNode;
+        return insertElement(key.intValue(), value);
     }
 
-    private AVLTreeNode insertElement(AVLTreeNode node, Integer key, String value) {
-        // If the node is null(external), then create a new node object
-        if (node == null) {
-            node = new AVLTreeNode(key, value, null, null);
-
-            // This is a replicated one of the node to be inserted
-            // with both children are null
-            toReturnNode = node;
-        } else {
-            int cmp = key.compareTo(node.getKey());
-
-            // If key > node.key,
-            // then insert the node into the left subtree of the node
-            if (cmp < 0) {
-                node.setLeftChild(insertElement(node.getLeftChild(), key, value));
-
-                // If the AVL tree loses balance after insertion,
-                // then re-balance it
-                if (getHeight(node.getLeftChild()) - getHeight(node.getRightChild()) == 2) {
-
-                    /**
-                     *****************
-                     *       node    *
-                     *      /        *
-                     *     /         *
-                     *    node.left  *
-                     *   /           *
-                     *  /            *
-                     * new node(key) *
-                     *****************
-                     */
-                    if (key.compareTo(node.getLeftChild().getKey()) < 0) {
-                        node = singleRightRotation(node);
-                    }
-
-                    /**
-                     *******************
-                     *    node         *
-                     *   /             *
-                     *  /              *
-                     * node.left       *
-                     * \               *
-                     *  \              *
-                     *   new node(key) *
-                     *******************
-                     */
-                    else {
-                        node = leftRightRotation(node);
-                    }
-                }
-            }
-
-            // If key < node.key,
-            // then insert the node into the right subtree of the node
-            else if (cmp > 0) {
-                node.setRightChild(insertElement(node.getRightChild(), key, value));
-
-                // If the AVL tree loses balance after insertion,
-                // then re-balance it
-                if (getHeight(node.getRightChild()) - getHeight(node.getLeftChild()) == 2) {
-
-                    /**
-                     *********************
-                     * node              *
-                     * \                 *
-                     *  \                *
-                     *   node.right      *
-                     *   \               *
-                     *    \              *
-                     *     new node(key) *
-                     *********************
-                     */
-                    if (key.compareTo(node.getRightChild().getKey()) > 0) {
-                        node = singleLeftRotation(node);
-                    }
-
-                    /**
-                     *****************
-                     * node          *
-                     * \             *
-                     *  \            *
-                     *   node.right  *
-                     *   /           *
-                     *  /            *
-                     * new node(key) *
-                     *****************
-                     */
-                    else {
-                        node = rightLeftRotation(node);
-                    }
-                }
-            }
-
+    /**
+     * Iterative insertElement
+     * Go down from the root recording the path, link the new node as a leaf,
+     * then go back up the path to re-balance it
+     * and stop as soon as a subtree keeps its old height
+     */
+    @Override
+    public AVLTreeNode insertElement(int key, String value) {
+        // path[0..depth) are the nodes from the root to the parent of the new node
+        AVLTreeNode[] path = new AVLTreeNode[getHeight(root) + 1];
+        int depth = 0;
+        AVLTreeNode node = root;
+        while (node != null) {
             // If key == node.key, that means the key
             // has already existed in the AVL tree
             // Report the Error
-            else {
+            if (key == node.getKey()) {
                 System.out.println("Error: Insert replicated key: " + key);
                 return null;
             }
+            path[depth++] = node;
+            node = (key < node.getKey()) ? node.getLeftChild() : node.getRightChild();
         }
-        // Modify the height
-        node.setHeight(max(getHeight(node.getLeftChild()), getHeight(node.getRightChild())) + 1);
 
-        return node;
+        AVLTreeNode newNode = new AVLTreeNode(key, value, null, null);
+        newNode.setHeight(1);
+        if (depth == 0) {
+            root = newNode;
+        } else if (key < path[depth - 1].getKey()) {
+            path[depth - 1].setLeftChild(newNode);
+        } else {
+            path[depth - 1].setRightChild(newNode);
+        }
+
+        retrace(path, depth);
+        return newNode;
     }
 
     /**
@@ -409,145 +543,514 @@ public class AVLTree implements CommonOperations {
      */
     @Override
     public AVLTreeNode removeElement(Integer key) {
-        // toReturnNode stores the node to be deleted(a fake one)
-        toReturnNode = null;
-        root = removeElement(root, key);
-        return toReturnNode;
+        return removeElement(key.intValue());
     }
 
-    private AVLTreeNode removeElement(AVLTreeNode node, Integer key) {
-        // If the node is external node(null),
+    /**
+     * Iterative removeElement
+     * Go down from the root recording the path, unlink the node
+     * (or replace it with the closest node of its higher subtree if it has two children),
+     * then go back up the path to re-balance it
+     * and stop as soon as a subtree keeps its old height
+     * The returned node is unlinked from the tree
+     */
+    @Override
+    public AVLTreeNode removeElement(int key) {
+        // path[0..depth) are the nodes from the root to the parent of the unlinked node
+        AVLTreeNode[] path = new AVLTreeNode[getHeight(root) + 1];
+        int depth = 0;
+        AVLTreeNode node = root;
+        while (node != null && node.getKey() != key) {
+            path[depth++] = node;
+            node = (key < node.getKey()) ? node.getLeftChild() : node.getRightChild();
+        }
+
+        // If the node does not exist,
         // then return null
         if (node == null) {
             return null;
         }
 
-        int cmp = key.compareTo(node.getKey());
-
-        // if key < node.key,
-        // then the node should be in the left subtree
-        if (cmp < 0) {
-            node.setLeftChild(removeElement(node.getLeftChild(), key));
-            // If the AVL tree loses balance after deletion,
-            // then re-balance it
-            if (getHeight(node.getRightChild()) - getHeight(node.getLeftChild()) == 2) {
-                AVLTreeNode right = node.getRightChild();
-
-                /**
-                 **************
-                 * node       *
-                 *  \         *
-                 *   \        *
-                 *    right   *
-                 *   /        *
-                 *  /         *
-                 * right.left *
-                 **************
-                 */
-                if (getHeight(right.getLeftChild()) > getHeight(right.getRightChild())) {
-                    node = rightLeftRotation(node);
+        AVLTreeNode toRemoveNode = node;
+        int removedDepth = depth;
+        AVLTreeNode replacement;
+
+        // If the to be deleted node has two non-null children
+        if ((node.getLeftChild() != null) && (node.getRightChild() != null)) {
+            // The replacement will take the place of the node in the path
+            path[depth++] = node;
+
+            /**
+             * If the left subtree is higher than right subtree,
+             * then 1) find the biggest node of the left subtree
+             *      2) unlink the biggest node
+             */
+            if (getHeight(node.getLeftChild()) > getHeight(node.getRightChild())) {
+                replacement = node.getLeftChild();
+                while (replacement.getRightChild() != null) {
+                    path[depth++] = replacement;
+                    replacement = replacement.getRightChild();
                 }
+                replaceChild(path[depth - 1], replacement, replacement.getLeftChild());
+            }
 
-                /**
-                 *********************
-                 * node              *
-                 *  \                *
-                 *   \               *
-                 *    right          *
-                 *     \             *
-                 *      \            *
-                 *       right.right *
-                 *********************
-                 */
-                else {
-                    node = singleLeftRotation(node);
+            /**
+             * If the left subtree is lower than or equals to right subtree,
+             * then 1) find the smallest node of the right subtree
+             *      2) unlink the smallest node
+             */
+            else {
+                replacement = node.getRightChild();
+                while (replacement.getLeftChild() != null) {
+                    path[depth++] = replacement;
+                    replacement = replacement.getLeftChild();
                 }
+                replaceChild(path[depth - 1], replacement, replacement.getRightChild());
             }
+
+            // 3) the replacement takes the place of the node
+            replacement.setLeftChild(node.getLeftChild());
+            replacement.setRightChild(node.getRightChild());
+            replacement.setHeight(node.getHeight());
+            path[removedDepth] = replacement;
         }
+        // If the to be deleted node has only one child or no children
+        // then replaces the node with its child (or null)
+        else {
+            replacement = (node.getLeftChild() != null) ? node.getLeftChild() : node.getRightChild();
+        }
+        replaceChild((removedDepth > 0) ? path[removedDepth - 1] : null, toRemoveNode, replacement);
 
-        // if key > node.key,
-        // then the node should be in the right subtree
-        else if (cmp > 0) {
-            node.setRightChild(removeElement(node.getRightChild(), key));
-            // If the tree is no longer balanced,
-            // then re-balance it
-            if (getHeight(node.getLeftChild()) - getHeight(node.getRightChild()) == 2) {
-                AVLTreeNode left = node.getLeftChild();
-
-                /**
-                 *****************
-                 *    node       *
-                 *   /           *
-                 *  /            *
-                 * left          *
-                 *  \            *
-                 *   \           *
-                 *    left.right *
-                 *****************
-                 */
-                if (getHeight(left.getRightChild()) > getHeight(left.getLeftChild())) {
-                    node = leftRightRotation(node);
-                }
+        retrace(path, depth);
 
-                /**
-                 **************
-                 *       node *
-                 *      /     *
-                 *     /      *
-                 *    left    *
-                 *   /        *
-                 *  /         *
-                 * left.left  *
-                 **************
-                 */
-                else {
-                    node = singleRightRotation(node);
-                }
+        toRemoveNode.setLeftChild(null);
+        toRemoveNode.setRightChild(null);
+        toRemoveNode.setSize(1);
+        return toRemoveNode;
+    }
+
+    /**
+     * Get the node with the k-th smallest key, k starts from 0
+     * so that select(rank(key)) is the node of the key
+     * If k is out of range, return null
+     */
+    public AVLTreeNode select(int k) {
+        if (k < 0 || k >= getSize()) {
+            return null;
+        }
+        AVLTreeNode node = root;
+        while (true) {
+            int leftSize = getSize(node.getLeftChild());
+            // The node is in the left subtree
+            if (k < leftSize) {
+                node = node.getLeftChild();
+            }
+            // We find the node
+            else if (k == leftSize) {
+                return node;
+            }
+            // The node is in the right subtree,
+            // skip the left subtree and the node
+            else {
+                k -= leftSize + 1;
+                node = node.getRightChild();
+            }
+        }
+    }
+
+    /**
+     * Get the number of keys < "key"
+     */
+    public int rank(int key) {
+        int rank = 0;
+        AVLTreeNode node = root;
+        while (node != null) {
+            if (key <= node.getKey()) {
+                node = node.getLeftChild();
+            }
+            // The node and its left subtree are all < key
+            else {
+                rank += getSize(node.getLeftChild()) + 1;
+                node = node.getRightChild();
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Get the number of keys <= "key"
+     */
+    private int rankInclusive(int key) {
+        int rank = 0;
+        AVLTreeNode node = root;
+        while (node != null) {
+            if (key < node.getKey()) {
+                node = node.getLeftChild();
+            }
+            // The node and its left subtree are all <= key
+            else {
+                rank += getSize(node.getLeftChild()) + 1;
+                node = node.getRightChild();
             }
         }
+        return rank;
+    }
+
+    /**
+     * Get the number of keys in [lo, hi]
+     */
+    public int countBetween(int lo, int hi) {
+        if (lo > hi) {
+            return 0;
+        }
+        return rankInclusive(hi) - rank(lo);
+    }
+
+    /**
+     * Split the AVL tree into two AVL trees in O(log n)
+     * The first one has the keys < "key", the second one has the keys >= "key"
+     * This AVL tree becomes empty
+     */
+    public AVLTree[] split(int key) {
+        AVLTreeNode[] parts = split(root, key);
+        root = null;
+        return new AVLTree[]{new AVLTree(parts[0]), new AVLTree(parts[1])};
+    }
+
+    /**
+     * Concatenate two AVL trees in O(log n)
+     * All the keys of "left" must be smaller than all the keys of "right"
+     * Both AVL trees become empty
+     */
+    public static AVLTree join(AVLTree left, AVLTree right) {
+        if (left.root != null && right.root != null
+                && left.maximumNode(left.root).getKey() >= right.minimumNode(right.root).getKey()) {
+            System.out.println("Error: Join overlapping AVL trees");
+            return null;
+        }
+        AVLTree joined = new AVLTree(left.join(left.root, right.root));
+        left.root = null;
+        right.root = null;
+        return joined;
+    }
+
+    /**
+     * The AVL tree of the keys in "first" or "second"
+     * If a key is in both, the value of "first" is kept
+     * Both AVL trees become empty
+     * If "first" and "second" are the same AVL tree, the result has all its keys
+     */
+    public static AVLTree union(AVLTree first, AVLTree second) {
+        return operate(AVLTreeSetOperation.UNION, first, second);
+    }
+
+    /**
+     * The AVL tree of the keys in both "first" and "second", with the values of "first"
+     * Both AVL trees become empty
+     * If "first" and "second" are the same AVL tree, the result has all its keys
+     */
+    public static AVLTree intersection(AVLTree first, AVLTree second) {
+        return operate(AVLTreeSetOperation.INTERSECTION, first, second);
+    }
+
+    /**
+     * The AVL tree of the keys in "first" but not in "second"
+     * Both AVL trees become empty
+     * If "first" and "second" are the same AVL tree, the result is empty
+     */
+    public static AVLTree difference(AVLTree first, AVLTree second) {
+        return operate(AVLTreeSetOperation.DIFFERENCE, first, second);
+    }
+
+    /**
+     * Run the set operation in the common fork/join pool
+     * O(m log(n / m + 1)) work for the sizes m <= n
+     */
+    private static AVLTree operate(int operation, AVLTree first, AVLTree second) {
+        // The operation takes both trees apart, so one tree cannot be both of them
+        if (first == second) {
+            AVLTreeNode result = (operation == AVLTreeSetOperation.DIFFERENCE) ? null : first.root;
+            first.root = null;
+            return new AVLTree(result);
+        }
+        AVLTreeNode result = ForkJoinPool.commonPool()
+                .invoke(new AVLTreeSetOperation(operation, first, first.root, second.root));
+        first.root = null;
+        second.root = null;
+        return new AVLTree(result);
+    }
+
+    /**
+     * Remove the nodes whose keys are in [lo, hi] in O(log n)
+     * Return the number of removed nodes
+     */
+    public int removeRange(int lo, int hi) {
+        return getSize(cutRange(lo, hi));
+    }
+
+    /**
+     * Remove the nodes whose keys are in [lo, hi] in O(log n)
+     * and return them as a new AVL tree
+     */
+    public AVLTree extractRange(int lo, int hi) {
+        return new AVLTree(cutRange(lo, hi));
+    }
+
+    /**
+     * Cut [lo, hi] out of the AVL tree by two splits and one join
+     * Return the root of the cut subtree
+     */
+    private AVLTreeNode cutRange(int lo, int hi) {
+        if (lo > hi) {
+            return null;
+        }
+        // below < lo <= parts[0] <= hi < parts[1]
+        AVLTreeNode[] parts = split(root, lo);
+        AVLTreeNode below = parts[0];
+        if (hi == Integer.MAX_VALUE) {
+            parts = new AVLTreeNode[]{parts[1], null};
+        } else {
+            parts = split(parts[1], hi + 1);
+        }
+        root = join(below, parts[1]);
+        return parts[0];
+    }
+
+    /**
+     * Recursive split
+     * Return the roots of two subtrees, the keys < "key" and the keys >= "key"
+     * Every level joins the node with the part of the other subtree,
+     * and the joins cost O(log n) in total
+     */
+    private AVLTreeNode[] split(AVLTreeNode node, int key) {
+        if (node == null) {
+            return new AVLTreeNode[]{null, null};
+        }
+        AVLTreeNode left = node.getLeftChild();
+        AVLTreeNode right = node.getRightChild();
+        // The node and its right subtree are all >= key
+        if (key <= node.getKey()) {
+            AVLTreeNode[] parts = split(left, key);
+            parts[1] = join(parts[1], node, right);
+            return parts;
+        }
+        // The node and its left subtree are all < key
+        else {
+            AVLTreeNode[] parts = split(right, key);
+            parts[0] = join(left, node, parts[0]);
+            return parts;
+        }
+    }
 
-        // If We find the node
+    /**
+     * Recursive split around the key
+     * Return the roots of the subtree of keys < "key", the node of the key (or null)
+     * unlinked from its children, and the subtree of keys > "key"
+     */
+    AVLTreeNode[] splitAt(AVLTreeNode node, int key) {
+        if (node == null) {
+            return new AVLTreeNode[]{null, null, null};
+        }
+        AVLTreeNode left = node.getLeftChild();
+        AVLTreeNode right = node.getRightChild();
+        // We find the node
+        if (key == node.getKey()) {
+            node.setLeftChild(null);
+            node.setRightChild(null);
+            node.setHeight(1);
+            node.setSize(1);
+            return new AVLTreeNode[]{left, node, right};
+        }
+        // The node and its right subtree are all > key
+        else if (key < node.getKey()) {
+            AVLTreeNode[] parts = splitAt(left, key);
+            parts[2] = join(parts[2], node, right);
+            return parts;
+        }
+        // The node and its left subtree are all < key
         else {
-            toReturnNode = node;
-            // If the to be deleted node has two non-null children
-            if ((node.getLeftChild() != null) && (node.getRightChild() != null)) {
-
-                /**
-                 * If the left subtree is higher than right subtree,
-                 * then 1) find the biggest node of the left subtree
-                 *      2) node <- the biggest node
-                 *      3) delete the node
-                 */
-                if (getHeight(node.getLeftChild()) > getHeight(node.getRightChild())) {
-                    AVLTreeNode max = maximumNode(node.getLeftChild());
-                    node.setKey(max.getKey());
-                    node.setLeftChild(removeElement(node.getLeftChild(), max.getKey()));
-                }
+            AVLTreeNode[] parts = splitAt(right, key);
+            parts[0] = join(left, node, parts[0]);
+            return parts;
+        }
+    }
 
-                /**
-                 * If the left subtree is lower than or equals to right subtree,
-                 * then 1) find the smallest node of the right subtree
-                 *      2) node <- the smallest node
-                 *      3) delete the node
-                 */
-                else {
-                    AVLTreeNode min = minimumNode(node.getRightChild());
-                    node.setKey(min.getKey());
-                    node.setRightChild(removeElement(node.getRightChild(), min.getKey()));
-                }
+    /**
+     * Join the subtrees "left" and "right" without a middle node
+     * The maximum node of "left" becomes the middle node
+     */
+    AVLTreeNode join(AVLTreeNode left, AVLTreeNode right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        AVLTreeNode[] maximum = new AVLTreeNode[1];
+        left = removeMaximum(left, maximum);
+        return join(left, maximum[0], right);
+    }
+
+    /**
+     * Unlink the maximum node of the subtree into maximum[0]
+     * Return the new root of the subtree
+     */
+    private AVLTreeNode removeMaximum(AVLTreeNode node, AVLTreeNode[] maximum) {
+        if (node.getRightChild() == null) {
+            maximum[0] = node;
+            AVLTreeNode left = node.getLeftChild();
+            node.setLeftChild(null);
+            return left;
+        }
+        node.setRightChild(removeMaximum(node.getRightChild(), maximum));
+        return rebalance(node);
+    }
+
+    /**
+     * Join the subtrees "left" and "right" with the node "middle" between them
+     * If their heights differ by more than 1, go down the spine of the higher one
+     * to a subtree as high as the lower one, and link "middle" there
+     * Return the new root
+     */
+    AVLTreeNode join(AVLTreeNode left, AVLTreeNode middle, AVLTreeNode right) {
+        // Go down the right spine of "left"
+        if (getHeight(left) > getHeight(right) + 1) {
+            left.setRightChild(join(left.getRightChild(), middle, right));
+            return rebalance(left);
+        }
+        // Go down the left spine of "right"
+        if (getHeight(right) > getHeight(left) + 1) {
+            right.setLeftChild(join(left, middle, right.getLeftChild()));
+            return rebalance(right);
+        }
+        middle.setLeftChild(left);
+        middle.setRightChild(right);
+        return rebalance(middle);
+    }
+
+    /**
+     * Go back up path[0..depth) after an insertion or a deletion below path[depth - 1]
+     * Re-balance every node until a subtree keeps its old height,
+     * because then the heights of its ancestors do not change,
+     * and only update the sizes of the rest
+     */
+    private void retrace(AVLTreeNode[] path, int depth) {
+        int i = depth - 1;
+        while (i >= 0) {
+            AVLTreeNode node = path[i];
+            int oldHeight = node.getHeight();
+            AVLTreeNode balanced = rebalance(node);
+            if (balanced != node) {
+                replaceChild((i > 0) ? path[i - 1] : null, node, balanced);
+            }
+            i--;
+            if (balanced.getHeight() == oldHeight) {
+                break;
             }
-            // If the to be deleted node has only one child or no children
-            // if it has only one left child, then replaces the node with his left child and return it
-            // if it has only one right child, then replaces the node with his right child and return it
-            // If it has no children, then return null
+        }
+        while (i >= 0) {
+            AVLTreeNode node = path[i];
+            node.setSize(getSize(node.getLeftChild()) + getSize(node.getRightChild()) + 1);
+            i--;
+        }
+    }
+
+    /**
+     * Re-balance the node whose subtrees differ in height by at most 2
+     * and update its height
+     * Return the new root of the subtree
+     */
+    private AVLTreeNode rebalance(AVLTreeNode node) {
+        // If the right subtree is higher
+        if (getHeight(node.getRightChild()) - getHeight(node.getLeftChild()) == 2) {
+            AVLTreeNode right = node.getRightChild();
+
+            /**
+             **************
+             * node       *
+             *  \         *
+             *   \        *
+             *    right   *
+             *   /        *
+             *  /         *
+             * right.left *
+             **************
+             */
+            if (getHeight(right.getLeftChild()) > getHeight(right.getRightChild())) {
+                return rightLeftRotation(node);
+            }
+
+            /**
+             *********************
+             * node              *
+             *  \                *
+             *   \               *
+             *    right          *
+             *     \             *
+             *      \            *
+             *       right.right *
+             *********************
+             */
+            else {
+                return singleLeftRotation(node);
+            }
+        }
+
+        // If the left subtree is higher
+        if (getHeight(node.getLeftChild()) - getHeight(node.getRightChild()) == 2) {
+            AVLTreeNode left = node.getLeftChild();
+
+            /**
+             *****************
+             *    node       *
+             *   /           *
+             *  /            *
+             * left          *
+             *  \            *
+             *   \           *
+             *    left.right *
+             *****************
+             */
+            if (getHeight(left.getRightChild()) > getHeight(left.getLeftChild())) {
+                return leftRightRotation(node);
+            }
+
+            /**
+             **************
+             *       node *
+             *      /     *
+             *     /      *
+             *    left    *
+             *   /        *
+             *  /         *
+             * left.left  *
+             **************
+             */
             else {
-                node = (node.getLeftChild() != null) ? node.getLeftChild() : node.getRightChild();
+                return singleRightRotation(node);
             }
         }
 
+        // Modify the height and the size
+        node.setHeight(max(getHeight(node.getLeftChild()), getHeight(node.getRightChild())) + 1);
+        node.setSize(getSize(node.getLeftChild()) + getSize(node.getRightChild()) + 1);
         return node;
     }
 
+    /**
+     * Replace the child "oldChild" of "parent" with "newChild"
+     * If parent is null, then oldChild is the root
+     */
+    private void replaceChild(AVLTreeNode parent, AVLTreeNode oldChild, AVLTreeNode newChild) {
+        if (parent == null) {
+            root = newChild;
+        } else if (parent.getLeftChild() == oldChild) {
+            parent.setLeftChild(newChild);
+        } else {
+            parent.setRightChild(newChild);
+        }
+    }
+
     /*
      * Get the node with the minimum key of the AVL Tree
      */
@@ -581,47 +1084,67 @@ public class AVLTree implements CommonOperations {
         root = null;
     }
 
+    /**
+     * The in-order spliterator over the nodes
+     * It splits at subtree roots and knows the exact sizes
+     */
+    public Spliterator<AVLTreeNode> spliterator() {
+        return new AVLTreeSpliterator(root);
+    }
+
+    /**
+     * Stream the nodes in ascending order of keys
+     */
+    public Stream<AVLTreeNode> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Stream the nodes in ascending order of keys in parallel
+     */
+    public Stream<AVLTreeNode> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
     /**
      * toString function helps print the AVL tree
      */
     @Override
     public String toString() {
         AVLTreeNode node = root;
-        String output = "";
         // If the AVL tree is empty
         if (node == null) {
-            output += "The AVL tree is empty.";
+            return "The AVL tree is empty.";
         }
-        // If the AVL tree is not empty
-        else {
-            output += node.getKey() + " is root.\n";
-            Queue<AVLTreeNode> queue = new LinkedList<>();
-            // Enqueue
-            queue.add(node);
-            while (queue.size() > 0) {
-                // Dequeue the node
-                node = queue.remove();
-                // If the left child exists,
-                // then enqueue the left child
-                if (node.getLeftChild() != null) {
-                    AVLTreeNode leftChild = node.getLeftChild();
-                    queue.add(leftChild);
-                    output += leftChild.getKey()
-                            + " is " + node.getKey()
-                            + "'s left child.\n";
-                }
-                // If the right child exists,
-                // then enqueue the right child
-                if (node.getRightChild() != null) {
-                    AVLTreeNode rightChild = node.getRightChild();
-                    queue.add(rightChild);
-                    output += rightChild.getKey()
-                            + " is " + node.getKey()
-                            + "'s right child.\n";
-                }
+
+        StringBuilder output = new StringBuilder();
+        output.append(node.getKey()).append(" is root.\n");
+        ArrayDeque<AVLTreeNode> queue = new ArrayDeque<>();
+        // Enqueue
+        queue.add(node);
+        while (!queue.isEmpty()) {
+            // Dequeue the node
+            node = queue.remove();
+            // If the left child exists,
+            // then enqueue the left child
+            if (node.getLeftChild() != null) {
+                AVLTreeNode leftChild = node.getLeftChild();
+                queue.add(leftChild);
+                output.append(leftChild.getKey())
+                        .append(" is ").append(node.getKey())
+                        .append("'s left child.\n");
+            }
+            // If the right child exists,
+            // then enqueue the right child
+            if (node.getRightChild() != null) {
+                AVLTreeNode rightChild = node.getRightChild();
+                queue.add(rightChild);
+                output.append(rightChild.getKey())
+                        .append(" is ").append(node.getKey())
+                        .append("'s right child.\n");
             }
         }
-        return output;
+        return output.toString();
     }
 
     /*
@@ -11,6 +11,7 @@ public class AVLTreeNode{
     private AVLTreeNode leftChild;
     private AVLTreeNode rightChild;
     private int height;
+    private int size; // the number of nodes in the subtree
 
     // Constructor
     public AVLTreeNode(int key, String value, AVLTreeNode leftChild, AVLTreeNode rightChild) {
@@ -19,6 +20,8 @@ public class AVLTreeNode{
         this.leftChild = leftChild;
         this.rightChild = rightChild;
         this.height = 0;
+        this.size = 1 + (leftChild != null ? leftChild.getSize() : 0)
+                + (rightChild != null ? rightChild.getSize() : 0);
     }
 
     public int getKey() {
@@ -61,6 +64,14 @@ public class AVLTreeNode{
         this.height = height;
     }
 
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
     /**
      * toString function helps print AVL tree node
      */
@@ -72,6 +83,7 @@ public class AVLTreeNode{
                 ", leftChild=" + leftChild.getKey() +
                 ", rightChild=" + rightChild.getKey() +
                 ", height=" + height +
+                ", size=" + size +
                 '}';
     }
 }
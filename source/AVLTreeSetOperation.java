@@ -0,0 +1,99 @@
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * AVLTreeSetOperation.java
+ * Implementing union, intersection and difference of two AVL trees with split and join
+ * Split one tree by the root key of the other, then the two pairs of halves
+ * are independent, so the left pair is forked while this thread works on the right pair.
+ * Small pairs are done in the same thread.
+ * The nodes of both trees are relinked into the result.
+ */
+
+public class AVLTreeSetOperation extends RecursiveTask<AVLTreeNode> {
+    private static final long serialVersionUID = 1L;
+
+    public final static int UNION = 0;
+    public final static int INTERSECTION = 1;
+    public final static int DIFFERENCE = 2;
+
+    // Pairs with fewer nodes than it are not forked
+    public final static int SEQUENTIAL_THRESHOLD = 4096;
+
+    private final int operation;
+    private final AVLTree tree; // provides split and join
+    private final AVLTreeNode first;
+    private final AVLTreeNode second;
+
+    /**
+     * Constructor
+     * The task of "first" operation "second",
+     * "tree" is the AVL tree whose split and join are used
+     */
+    public AVLTreeSetOperation(int operation, AVLTree tree, AVLTreeNode first, AVLTreeNode second) {
+        this.operation = operation;
+        this.tree = tree;
+        this.first = first;
+        this.second = second;
+    }
+
+    @Override
+    protected AVLTreeNode compute() {
+        return operate(first, second);
+    }
+
+    /**
+     * Return the root of "first" operation "second"
+     */
+    private AVLTreeNode operate(AVLTreeNode first, AVLTreeNode second) {
+        switch (operation) {
+            case UNION:
+                if (first == null) {
+                    return second;
+                }
+                if (second == null) {
+                    return first;
+                }
+                break;
+            case INTERSECTION:
+                if (first == null || second == null) {
+                    return null;
+                }
+                break;
+            default:
+                if (first == null || second == null) {
+                    return first;
+                }
+                break;
+        }
+        boolean fork = tree.getSize(first) + tree.getSize(second) >= SEQUENTIAL_THRESHOLD;
+
+        // The difference keeps no key of "second", so split "first" by the root of "second"
+        // The others keep the root of "first", so split "second" by it
+        AVLTreeNode pivot = (operation == DIFFERENCE) ? second : first;
+        AVLTreeNode pivotLeft = pivot.getLeftChild();
+        AVLTreeNode pivotRight = pivot.getRightChild();
+        AVLTreeNode[] parts = tree.splitAt((operation == DIFFERENCE) ? first : second, pivot.getKey());
+        AVLTreeNode firstLeft = (operation == DIFFERENCE) ? parts[0] : pivotLeft;
+        AVLTreeNode secondLeft = (operation == DIFFERENCE) ? pivotLeft : parts[0];
+        AVLTreeNode firstRight = (operation == DIFFERENCE) ? parts[2] : pivotRight;
+        AVLTreeNode secondRight = (operation == DIFFERENCE) ? pivotRight : parts[2];
+
+        AVLTreeNode left;
+        AVLTreeNode right;
+        if (fork) {
+            AVLTreeSetOperation leftTask = new AVLTreeSetOperation(operation, tree, firstLeft, secondLeft);
+            leftTask.fork();
+            right = operate(firstRight, secondRight);
+            left = leftTask.join();
+        } else {
+            left = operate(firstLeft, secondLeft);
+            right = operate(firstRight, secondRight);
+        }
+
+        // Keep the pivot if it is in the result
+        if (operation == UNION || (operation == INTERSECTION && parts[1] != null)) {
+            return tree.join(left, pivot, right);
+        }
+        return tree.join(left, right);
+    }
+}
@@ -0,0 +1,171 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * AVLTreeSpliterator.java
+ * Implementing the in-order spliterator of the AVL tree
+ * The nodes still to visit are a stack of entries in in-order sequence (the top is the next one),
+ * an entry is either a whole subtree or a single node.
+ * trySplit expands the top subtrees at their roots until the top entry is at most half
+ * of the rest, and hands the top entries (about half of the nodes) to the new spliterator,
+ * so both sizes are exact (SIZED and SUBSIZED) and a split costs O(log n).
+ * The AVL tree should not be modified while traversing.
+ */
+
+public class AVLTreeSpliterator implements Spliterator<AVLTreeNode> {
+    private final static Comparator<AVLTreeNode> KEY_ORDER = Comparator.comparingInt(AVLTreeNode::getKey);
+
+    private AVLTreeNode[] nodes; // the stack of entries
+    private boolean[] whole; // whole[i] means nodes[i] stands for its whole subtree
+    private int top; // the number of entries
+    private long remaining; // the number of nodes in all the entries
+
+    /**
+     * Constructor
+     * Initialize the spliterator over the subtree of "root"
+     */
+    public AVLTreeSpliterator(AVLTreeNode root) {
+        int capacity = 2 * ((root != null) ? root.getHeight() : 0) + 2;
+        this.nodes = new AVLTreeNode[capacity];
+        this.whole = new boolean[capacity];
+        this.top = 0;
+        this.remaining = 0;
+        if (root != null) {
+            push(root, true);
+        }
+    }
+
+    private AVLTreeSpliterator(AVLTreeNode[] nodes, boolean[] whole, int top, long remaining) {
+        this.nodes = nodes;
+        this.whole = whole;
+        this.top = top;
+        this.remaining = remaining;
+    }
+
+    private void push(AVLTreeNode node, boolean wholeSubtree) {
+        if (top == nodes.length) {
+            nodes = Arrays.copyOf(nodes, 2 * top);
+            whole = Arrays.copyOf(whole, 2 * top);
+        }
+        nodes[top] = node;
+        whole[top] = wholeSubtree;
+        top++;
+        remaining += wholeSubtree ? node.getSize() : 1;
+    }
+
+    /**
+     * Replace the whole subtree on the top with
+     * its left subtree, its root and its right subtree
+     */
+    private void expandTop() {
+        AVLTreeNode node = nodes[--top];
+        remaining -= node.getSize();
+        if (node.getRightChild() != null) {
+            push(node.getRightChild(), true);
+        }
+        push(node, false);
+        if (node.getLeftChild() != null) {
+            push(node.getLeftChild(), true);
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super AVLTreeNode> action) {
+        if (top == 0) {
+            return false;
+        }
+        while (whole[top - 1]) {
+            expandTop();
+        }
+        AVLTreeNode node = nodes[--top];
+        nodes[top] = null;
+        remaining--;
+        action.accept(node);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super AVLTreeNode> action) {
+        // Inorder traversal from the entries on the stack, without expanding them
+        AVLTreeNode[] stack = new AVLTreeNode[nodes.length];
+        while (top > 0) {
+            AVLTreeNode node = nodes[--top];
+            boolean wholeSubtree = whole[top];
+            nodes[top] = null;
+            if (!wholeSubtree) {
+                action.accept(node);
+                continue;
+            }
+            int depth = 0;
+            while (node != null || depth > 0) {
+                while (node != null) {
+                    if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, 2 * depth);
+                    }
+                    stack[depth++] = node;
+                    node = node.getLeftChild();
+                }
+                node = stack[--depth];
+                action.accept(node);
+                node = node.getRightChild();
+            }
+        }
+        remaining = 0;
+    }
+
+    @Override
+    public Spliterator<AVLTreeNode> trySplit() {
+        if (remaining < 2) {
+            return null;
+        }
+        long half = remaining / 2;
+        // Make the top entry at most half of the nodes
+        while (whole[top - 1] && nodes[top - 1].getSize() > half) {
+            expandTop();
+        }
+
+        // Take the top entries up to half of the nodes, at least one entry
+        int count = 0;
+        long prefix = 0;
+        while (count < top) {
+            int i = top - 1 - count;
+            long size = whole[i] ? nodes[i].getSize() : 1;
+            if (count > 0 && prefix + size > half) {
+                break;
+            }
+            prefix += size;
+            count++;
+        }
+        if (count == top) {
+            return null;
+        }
+
+        // The new spliterator gets the prefix, with the same order on its stack
+        int capacity = Math.max(nodes.length, count + 2);
+        AVLTreeNode[] prefixNodes = new AVLTreeNode[capacity];
+        boolean[] prefixWhole = new boolean[capacity];
+        System.arraycopy(nodes, top - count, prefixNodes, 0, count);
+        System.arraycopy(whole, top - count, prefixWhole, 0, count);
+        Arrays.fill(nodes, top - count, top, null);
+        top -= count;
+        remaining -= prefix;
+        return new AVLTreeSpliterator(prefixNodes, prefixWhole, count, prefix);
+    }
+
+    @Override
+    public long estimateSize() {
+        return remaining;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SORTED | DISTINCT | NONNULL | SIZED | SUBSIZED;
+    }
+
+    @Override
+    public Comparator<? super AVLTreeNode> getComparator() {
+        return KEY_ORDER;
+    }
+}
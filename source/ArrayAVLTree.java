@@ -0,0 +1,424 @@
+import java.util.Arrays;
+
+/**
+ * ArrayAVLTree.java
+ * Implementing the AVL tree in parallel primitive arrays
+ * Node i is (keys[i], values[i], leftChildren[i], rightChildren[i], heights[i]),
+ * and children are array indexes rather than references, so the tree is
+ * a handful of arrays instead of one object per node.
+ * Slot 0 is the null node (NIL) with height 0.
+ * Removed slots are kept in a free list, linked by their left child, and reused.
+ * A node is addressed by its slot, so insertElement, findElement,
+ * closestNodeAfter and removeElement return slots rather than node objects.
+ * Use getKey(node) and getValue(node) to read them.
+ */
+
+public class ArrayAVLTree implements CommonOperations {
+    private final static int NIL = 0;
+    // An AVL tree of 2^31 nodes is less than 1.45 * 31 high
+    private final static int MAX_HEIGHT = 48;
+
+    private int[] keys;
+    private String[] values;
+    private int[] leftChildren;
+    private int[] rightChildren;
+    private byte[] heights;
+
+    private int root;
+    private int size; // the size of the AVL tree
+    private int used; // slots [1, used) have been handed out
+    private int free; // the first slot of the free list
+
+    /**
+     * Constructor
+     * Initialize the AVL tree
+     */
+    public ArrayAVLTree() {
+        this(16);
+    }
+
+    /**
+     * Constructor
+     * Initialize the AVL tree with room for "capacity" nodes
+     */
+    public ArrayAVLTree(int capacity) {
+        init(capacity);
+    }
+
+    private void init(int capacity) {
+        capacity = Math.max(capacity, 1) + 1;
+        keys = new int[capacity];
+        values = new String[capacity];
+        leftChildren = new int[capacity];
+        rightChildren = new int[capacity];
+        heights = new byte[capacity];
+        root = NIL;
+        size = 0;
+        used = 1;
+        free = NIL;
+    }
+
+    /**
+     * Get the size of the AVL tree
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the height of the AVL tree
+     */
+    public int getHeight() {
+        return heights[root];
+    }
+
+    /**
+     * Get the key of the node in slot "node"
+     */
+    public int getKey(int node) {
+        return keys[node];
+    }
+
+    /**
+     * Get the value of the node in slot "node"
+     */
+    public String getValue(int node) {
+        return values[node];
+    }
+
+    /**
+     * Find the node whose key equals to "key"
+     * If the node exists, then return its slot
+     * Else return null
+     */
+    @Override
+    public Integer findElement(Integer key) {
+        int node = findNode(key);
+        return (node != NIL) ? node : null;
+    }
+
+    private int findNode(int key) {
+        int node = root;
+        while (node != NIL && keys[node] != key) {
+            node = (key < keys[node]) ? leftChildren[node] : rightChildren[node];
+        }
+        return node;
+    }
+
+    /**
+     * Find the node whose key equals to "key"
+     * If the node exists, then return true
+     * Else return false
+     */
+    @Override
+    public boolean findElementBoolean(Integer key) {
+        return findNode(key) != NIL;
+    }
+
+    /**
+     * Find the closest key after the "key"
+     * If it does not exits, return NO_KEY;
+     */
+    @Override
+    public Integer closestKeyAfter(Integer key) {
+        int node = higherNode(key);
+        return (node != NIL) ? keys[node] : IntOrderedMap.NO_KEY;
+    }
+
+    /**
+     * Find the closest node which key after the "key"
+     * If it does not exits, return null;
+     */
+    @Override
+    public Integer closestNodeAfter(Integer key) {
+        int node = higherNode(key);
+        return (node != NIL) ? node : null;
+    }
+
+    /**
+     * Get the node with the smallest key > "key"
+     */
+    private int higherNode(int key) {
+        // CNA records the smallest node > key met on the way down
+        int CNA = NIL;
+        int node = root;
+        while (node != NIL) {
+            if (key < keys[node]) {
+                CNA = node;
+                node = leftChildren[node];
+            } else {
+                node = rightChildren[node];
+            }
+        }
+        return CNA;
+    }
+
+    /**
+     * Insert the key-value pair into the AVL tree
+     * Return the slot of the new node
+     */
+    @Override
+    public Integer insertElement(Integer key, String value) {
+        int k = key;
+        // path[0..depth) are the nodes from the root to the parent of the new node
+        int[] path = new int[MAX_HEIGHT];
+        int depth = 0;
+        int node = root;
+        while (node != NIL) {
+            // If key == node.key, that means the key
+            // has already existed in the AVL tree
+            // Report the Error
+            if (k == keys[node]) {
+                System.out.println("Error: Insert replicated key: " + key);
+                return null;
+            }
+            path[depth++] = node;
+            node = (k < keys[node]) ? leftChildren[node] : rightChildren[node];
+        }
+
+        int newNode = allocateNode(k, value);
+        if (depth == 0) {
+            root = newNode;
+        } else if (k < keys[path[depth - 1]]) {
+            leftChildren[path[depth - 1]] = newNode;
+        } else {
+            rightChildren[path[depth - 1]] = newNode;
+        }
+
+        retrace(path, depth);
+        size++;
+        return newNode;
+    }
+
+    /**
+     * Remove the node whose key == "key"
+     * and then return its slot
+     * The key of the removed node stays readable until the next insertElement,
+     * its value is dropped
+     */
+    @Override
+    public Integer removeElement(Integer key) {
+        int k = key;
+        // path[0..depth) are the nodes from the root to the parent of the unlinked node
+        int[] path = new int[MAX_HEIGHT];
+        int depth = 0;
+        int node = root;
+        while (node != NIL && keys[node] != k) {
+            path[depth++] = node;
+            node = (k < keys[node]) ? leftChildren[node] : rightChildren[node];
+        }
+
+        // If the node does not exist,
+        // then return null
+        if (node == NIL) {
+            return null;
+        }
+
+        int removedDepth = depth;
+        int replacement;
+        // If the to be deleted node has two children,
+        // then replace it with the closest node of its higher subtree
+        if (leftChildren[node] != NIL && rightChildren[node] != NIL) {
+            path[depth++] = node;
+            if (heights[leftChildren[node]] > heights[rightChildren[node]]) {
+                replacement = leftChildren[node];
+                while (rightChildren[replacement] != NIL) {
+                    path[depth++] = replacement;
+                    replacement = rightChildren[replacement];
+                }
+                replaceChild(path[depth - 1], replacement, leftChildren[replacement]);
+            } else {
+                replacement = rightChildren[node];
+                while (leftChildren[replacement] != NIL) {
+                    path[depth++] = replacement;
+                    replacement = leftChildren[replacement];
+                }
+                replaceChild(path[depth - 1], replacement, rightChildren[replacement]);
+            }
+            leftChildren[replacement] = leftChildren[node];
+            rightChildren[replacement] = rightChildren[node];
+            heights[replacement] = heights[node];
+            path[removedDepth] = replacement;
+        }
+        // If the to be deleted node has only one child or no children,
+        // then replace it with its child (or NIL)
+        else {
+            replacement = (leftChildren[node] != NIL) ? leftChildren[node] : rightChildren[node];
+        }
+        replaceChild((removedDepth > 0) ? path[removedDepth - 1] : NIL, node, replacement);
+
+        retrace(path, depth);
+        freeNode(node);
+        size--;
+        return node;
+    }
+
+    /**
+     * Go back up path[0..depth), re-balancing every node,
+     * and stop as soon as a subtree keeps its old height
+     */
+    private void retrace(int[] path, int depth) {
+        for (int i = depth - 1; i >= 0; i--) {
+            int node = path[i];
+            int oldHeight = heights[node];
+            int balanced = rebalance(node);
+            if (balanced != node) {
+                replaceChild((i > 0) ? path[i - 1] : NIL, node, balanced);
+            }
+            if (heights[balanced] == oldHeight) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Re-balance the node whose subtrees differ in height by at most 2
+     * and update its height
+     * Return the new root of the subtree
+     */
+    private int rebalance(int node) {
+        int balance = heights[rightChildren[node]] - heights[leftChildren[node]];
+        // If the right subtree is higher
+        if (balance == 2) {
+            int right = rightChildren[node];
+            if (heights[leftChildren[right]] > heights[rightChildren[right]]) {
+                rightChildren[node] = singleRightRotation(right);
+            }
+            return singleLeftRotation(node);
+        }
+        // If the left subtree is higher
+        if (balance == -2) {
+            int left = leftChildren[node];
+            if (heights[rightChildren[left]] > heights[leftChildren[left]]) {
+                leftChildren[node] = singleLeftRotation(left);
+            }
+            return singleRightRotation(node);
+        }
+        updateHeight(node);
+        return node;
+    }
+
+    /**
+     * Single left rotation
+     * Return the new root of the subtree
+     */
+    private int singleLeftRotation(int a) {
+        int b = rightChildren[a];
+        rightChildren[a] = leftChildren[b];
+        leftChildren[b] = a;
+        updateHeight(a);
+        updateHeight(b);
+        return b;
+    }
+
+    /**
+     * Single right rotation
+     * Return the new root of the subtree
+     */
+    private int singleRightRotation(int a) {
+        int b = leftChildren[a];
+        leftChildren[a] = rightChildren[b];
+        rightChildren[b] = a;
+        updateHeight(a);
+        updateHeight(b);
+        return b;
+    }
+
+    private void updateHeight(int node) {
+        heights[node] = (byte) (Math.max(heights[leftChildren[node]], heights[rightChildren[node]]) + 1);
+    }
+
+    /**
+     * Replace the child "oldChild" of "parent" with "newChild"
+     * If parent is NIL, then oldChild is the root
+     */
+    private void replaceChild(int parent, int oldChild, int newChild) {
+        if (parent == NIL) {
+            root = newChild;
+        } else if (leftChildren[parent] == oldChild) {
+            leftChildren[parent] = newChild;
+        } else {
+            rightChildren[parent] = newChild;
+        }
+    }
+
+    /**
+     * Take a slot from the free list,
+     * or from the end of the arrays if there is none
+     */
+    private int allocateNode(int key, String value) {
+        int node;
+        if (free != NIL) {
+            node = free;
+            free = leftChildren[node];
+        } else {
+            if (used == keys.length) {
+                int capacity = keys.length * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                values = Arrays.copyOf(values, capacity);
+                leftChildren = Arrays.copyOf(leftChildren, capacity);
+                rightChildren = Arrays.copyOf(rightChildren, capacity);
+                heights = Arrays.copyOf(heights, capacity);
+            }
+            node = used++;
+        }
+        keys[node] = key;
+        values[node] = value;
+        leftChildren[node] = NIL;
+        rightChildren[node] = NIL;
+        heights[node] = 1;
+        return node;
+    }
+
+    /**
+     * Put the slot back to the free list
+     * Its value is dropped, so the removed value can be garbage collected
+     */
+    private void freeNode(int node) {
+        values[node] = null;
+        leftChildren[node] = free;
+        rightChildren[node] = NIL;
+        free = node;
+    }
+
+    /*
+     * Destroy the AVL tree
+     */
+    @Override
+    public void destroy() {
+        init(16);
+    }
+
+    /**
+     * toString function helps print the AVL tree
+     */
+    @Override
+    public String toString() {
+        // If the AVL tree is empty
+        if (root == NIL) {
+            return "The AVL tree is empty.";
+        }
+
+        StringBuilder output = new StringBuilder();
+        output.append(keys[root]).append(" is root.\n");
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = root;
+        while (head < tail) {
+            int node = queue[head++];
+            if (leftChildren[node] != NIL) {
+                queue[tail++] = leftChildren[node];
+                output.append(keys[leftChildren[node]]).append(" is ")
+                        .append(keys[node]).append("'s left child.\n");
+            }
+            if (rightChildren[node] != NIL) {
+                queue[tail++] = rightChildren[node];
+                output.append(keys[rightChildren[node]]).append(" is ")
+                        .append(keys[node]).append("'s right child.\n");
+            }
+        }
+        return output.toString();
+    }
+}
@@ -0,0 +1,418 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark.java
+ * Benchmark every operation of CommonOperations on the AVL tree and the skip list
+ * Every (structure, operation, size) runs in fresh JVMs (forks), first warmup
+ * iterations to let the JIT compile, then measurement iterations.
+ * An iteration times batches of operations with one pair of System.nanoTime() calls
+ * per batch, so the timer costs little per operation, and the keys are
+ * computed before the batch.
+ * The results are consumed into a volatile field, so the JIT cannot drop the calls.
+ * Insertions are removed (and removals are inserted back) after each batch,
+ * outside of the timed part, so the size stays the same.
+ * Reports the throughput and the average time per operation
+ * with their 99.9% confidence intervals over all the measurement iterations.
+ *
+ * Usage: java Benchmark [-structures AVLTree,SkipList] [-operations findElement,...]
+ *                       [-sizes 7-24] [-forks 2] [-warmups 3] [-iterations 5]
+ *                       [-time 200] [-jvmArgs "-Xmx4g"]
+ * Sizes are exponents of 2, time is milliseconds per iteration,
+ * "-forks 0" runs everything in this JVM.
+ */
+
+public class Benchmark {
+    public final static String[] OPERATIONS = {"insertElement", "findElement", "findElementBoolean",
+            "closestKeyAfter", "closestNodeAfter", "removeElement"};
+
+    private final static String VALUE = "";
+    private final static int LOOKUPS = 1 << 16;
+    private final static int MAX_BATCH = 1024;
+    private final static String RESULT = "RESULT";
+
+    // t-distribution quantiles for the two-sided 99.9% confidence interval,
+    // T_QUANTILES[df - 1] for df = 1..30
+    private final static double[] T_QUANTILES = {636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408,
+            5.041, 4.781, 4.587, 4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+            3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646};
+
+    // The blackhole, every batch writes what it consumed into it
+    public static volatile int sink;
+
+    private final CommonOperations structure;
+    private final int size;
+    private final int[] lookups; // keys to look up, half of them exist
+    private final int[] batchKeys; // keys to insert or remove in the current batch
+    private int lookupCursor;
+    private int presentCursor; // key(presentCursor) is the next key to remove
+    private int absentCursor; // key(size + absentCursor) is the next key to insert
+
+    /**
+     * Constructor
+     * Fill the structure with "size" keys
+     */
+    public Benchmark(CommonOperations structure, int size, long seed) {
+        this.structure = structure;
+        this.size = size;
+        for (int i = 0; i < size; i++) {
+            structure.insertElement(key(i), VALUE);
+        }
+        Random random = new Random(seed);
+        batchKeys = new int[MAX_BATCH];
+        lookups = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups[i] = key(random.nextInt(2 * size));
+        }
+    }
+
+    /**
+     * The i-th key, for 0 <= i < 2^31
+     * A bijection, so the keys are distinct without checking,
+     * and they look random to the structures
+     * key(0..size - 1) are in the structure, key(size..2 * size - 1) are not
+     * The keys are in [-2^30, 2^30), away from the sentinels of the skip lists
+     */
+    public static int key(int i) {
+        int x = (i * 0x9E3779B1) & Integer.MAX_VALUE;
+        x ^= x >>> 16;
+        x = (x * 0x85EBCA6B) & Integer.MAX_VALUE;
+        x ^= x >>> 13;
+        return x - (1 << 30);
+    }
+
+    /**
+     * Run "operation" for at least "nanos" nanoseconds
+     * Return the operations per second of the timed part
+     */
+    public double iteration(String operation, long nanos) {
+        long timed = 0L;
+        long operations = 0L;
+        long deadline = System.nanoTime() + nanos;
+        do {
+            int batch = batchSize(operation);
+            timed += batch(operation, batch);
+            operations += batch;
+        } while (System.nanoTime() < deadline);
+        return operations * 1e9 / timed;
+    }
+
+    private int batchSize(String operation) {
+        if (operation.equals("insertElement") || operation.equals("removeElement")) {
+            // Do not change the size too much in one batch
+            return Math.max(1, Math.min(MAX_BATCH, size / 4));
+        }
+        return MAX_BATCH;
+    }
+
+    /**
+     * Run "batch" operations
+     * Return the nanoseconds they took
+     */
+    private long batch(String operation, int batch) {
+        int consumed = 0;
+        long start;
+        long end;
+        switch (operation) {
+            case "insertElement": {
+                int first = absentCursor;
+                for (int i = 0; i < batch; i++) {
+                    batchKeys[i] = key(size + (first + i) % size);
+                }
+                start = System.nanoTime();
+                for (int i = 0; i < batch; i++) {
+                    consumed += (structure.insertElement(batchKeys[i], VALUE) != null) ? 1 : 0;
+                }
+                end = System.nanoTime();
+                for (int i = 0; i < batch; i++) {
+                    structure.removeElement(batchKeys[i]);
+                }
+                absentCursor = (first + batch) % size;
+                break;
+            }
+            case "removeElement": {
+                int first = presentCursor;
+                for (int i = 0; i < batch; i++) {
+                    batchKeys[i] = key((first + i) % size);
+                }
+                start = System.nanoTime();
+                for (int i = 0; i < batch; i++) {
+                    consumed += (structure.removeElement(batchKeys[i]) != null) ? 1 : 0;
+                }
+                end = System.nanoTime();
+                for (int i = 0; i < batch; i++) {
+                    structure.insertElement(batchKeys[i], VALUE);
+                }
+                presentCursor = (first + batch) % size;
+                break;
+            }
+            case "findElement": {
+                int first = lookupCursor;
+                start = System.nanoTime();
+                for (int i = 0; i < batch; i++) {
+                    consumed += (structure.findElement(lookups[(first + i) & (LOOKUPS - 1)]) != null) ? 1 : 0;
+                }
+                end = System.nanoTime();
+                lookupCursor = (first + batch) & (LOOKUPS - 1);
+                break;
+            }
+            case "findElementBoolean": {
+                int first = lookupCursor;
+                start = System.nanoTime();
+                for (int i = 0; i < batch; i++) {
+                    consumed += structure.findElementBoolean(lookups[(first + i) & (LOOKUPS - 1)]) ? 1 : 0;
+                }
+                end = System.nanoTime();
+                lookupCursor = (first + batch) & (LOOKUPS - 1);
+                break;
+            }
+            case "closestKeyAfter": {
+                int first = lookupCursor;
+                start = System.nanoTime();
+                for (int i = 0; i < batch; i++) {
+                    consumed += structure.closestKeyAfter(lookups[(first + i) & (LOOKUPS - 1)]);
+                }
+                end = System.nanoTime();
+                lookupCursor = (first + batch) & (LOOKUPS - 1);
+                break;
+            }
+            case "closestNodeAfter": {
+                int first = lookupCursor;
+                start = System.nanoTime();
+                for (int i = 0; i < batch; i++) {
+                    consumed += (structure.closestNodeAfter(lookups[(first + i) & (LOOKUPS - 1)]) != null) ? 1 : 0;
+                }
+                end = System.nanoTime();
+                lookupCursor = (first + batch) & (LOOKUPS - 1);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+        sink = consumed;
+        return end - start;
+    }
+
+    /**
+     * Create the structure by its class name
+     */
+    public static CommonOperations newStructure(String name) {
+        try {
+            return (CommonOperations) Class.forName(name).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Unknown structure: " + name, e);
+        }
+    }
+
+    /**
+     * One fork: build the structure, warm up, then measure
+     * Return the operations per second of the measurement iterations
+     */
+    public static double[] run(String structureName, String operation, int exponent,
+                               int warmups, int iterations, long nanos) {
+        Benchmark benchmark = new Benchmark(newStructure(structureName), 1 << exponent, exponent);
+        System.gc();
+        for (int i = 0; i < warmups; i++) {
+            benchmark.iteration(operation, nanos);
+        }
+        double[] throughputs = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            throughputs[i] = benchmark.iteration(operation, nanos);
+        }
+        return throughputs;
+    }
+
+    /**
+     * Run one fork in a new JVM with the same class path
+     * Return the operations per second of its measurement iterations,
+     * or null if it failed
+     */
+    private static double[] fork(List<String> jvmArgs, String structureName, String operation, int exponent,
+                                 int warmups, int iterations, long millis) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + "/bin/java");
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("Benchmark");
+        command.add("-child");
+        command.add(structureName);
+        command.add(operation);
+        command.add(String.valueOf(exponent));
+        command.add(String.valueOf(warmups));
+        command.add(String.valueOf(iterations));
+        command.add(String.valueOf(millis));
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        double[] throughputs = null;
+        String last = "";
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(RESULT)) {
+                    String[] fields = line.trim().split(" ");
+                    throughputs = new double[fields.length - 1];
+                    for (int i = 1; i < fields.length; i++) {
+                        throughputs[i - 1] = Double.parseDouble(fields[i]);
+                    }
+                } else if (!line.isEmpty()) {
+                    last = line;
+                }
+            }
+        }
+        if (process.waitFor() != 0 || throughputs == null) {
+            System.out.println("Error: Fork failed: " + structureName + " " + operation
+                    + " 2^" + exponent + ": " + last);
+            return null;
+        }
+        return throughputs;
+    }
+
+    /**
+     * The half width of the 99.9% confidence interval of the mean
+     */
+    public static double error(double[] samples) {
+        int n = samples.length;
+        if (n < 2) {
+            return Double.NaN;
+        }
+        double mean = mean(samples);
+        double squares = 0;
+        for (double sample : samples) {
+            squares += (sample - mean) * (sample - mean);
+        }
+        double deviation = Math.sqrt(squares / (n - 1));
+        return tQuantile(n - 1) * deviation / Math.sqrt(n);
+    }
+
+    public static double mean(double[] samples) {
+        double sum = 0;
+        for (double sample : samples) {
+            sum += sample;
+        }
+        return sum / samples.length;
+    }
+
+    /**
+     * The t-distribution quantile for the 99.9% confidence interval
+     * Beyond the table, use the one of the next smaller tabulated df, which is a bit wider
+     */
+    private static double tQuantile(int df) {
+        if (df <= T_QUANTILES.length) {
+            return T_QUANTILES[df - 1];
+        }
+        if (df < 40) {
+            return 3.646;
+        }
+        if (df < 60) {
+            return 3.551;
+        }
+        if (df < 120) {
+            return 3.460;
+        }
+        return 3.373;
+    }
+
+    /**
+     * Parse "7-24" or "7,8,16" into exponents
+     */
+    public static int[] parseSizes(String sizes) {
+        if (sizes.contains("-")) {
+            String[] bounds = sizes.split("-");
+            int from = Integer.parseInt(bounds[0]);
+            int to = Integer.parseInt(bounds[1]);
+            int[] exponents = new int[to - from + 1];
+            for (int i = 0; i < exponents.length; i++) {
+                exponents[i] = from + i;
+            }
+            return exponents;
+        }
+        return Arrays.stream(sizes.split(",")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static String row(String operation, String structure, int exponent, String mode,
+                              int count, double score, double error, String unit) {
+        return String.format("%-20s %-18s %10d %6s %5d %14.3f +- %12.3f %s",
+                operation, structure, 1 << exponent, mode, count, score, error, unit);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // A fork started by the parent JVM
+        if (args.length > 0 && args[0].equals("-child")) {
+            double[] throughputs = run(args[1], args[2], Integer.parseInt(args[3]),
+                    Integer.parseInt(args[4]), Integer.parseInt(args[5]), Long.parseLong(args[6]) * 1_000_000L);
+            StringBuilder output = new StringBuilder(RESULT);
+            for (double throughput : throughputs) {
+                output.append(' ').append(throughput);
+            }
+            System.out.println(output);
+            return;
+        }
+
+        String[] structures = {"AVLTree", "SkipList"};
+        String[] operations = OPERATIONS;
+        int[] exponents = parseSizes("7-24");
+        int forks = 2;
+        int warmups = 3;
+        int iterations = 5;
+        int millis = 200;
+        List<String> jvmArgs = new ArrayList<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-structures": structures = args[i + 1].split(","); break;
+                case "-operations": operations = args[i + 1].split(","); break;
+                case "-sizes": exponents = parseSizes(args[i + 1]); break;
+                case "-forks": forks = Integer.parseInt(args[i + 1]); break;
+                case "-warmups": warmups = Integer.parseInt(args[i + 1]); break;
+                case "-iterations": iterations = Integer.parseInt(args[i + 1]); break;
+                case "-time": millis = Integer.parseInt(args[i + 1]); break;
+                case "-jvmArgs": jvmArgs.addAll(Arrays.asList(args[i + 1].trim().split("\\s+"))); break;
+                default:
+                    System.out.println("Error: Unknown option: " + args[i]);
+                    return;
+            }
+        }
+
+        System.out.println("Forks: " + forks + ", warmup iterations: " + warmups
+                + ", measurement iterations: " + iterations + ", " + millis + " ms each\n");
+        System.out.println(String.format("%-20s %-18s %10s %6s %5s %14s    %12s %s",
+                "Benchmark", "Structure", "Size", "Mode", "Cnt", "Score", "Error", "Units"));
+        for (String operation : operations) {
+            for (String structure : structures) {
+                for (int exponent : exponents) {
+                    // Collect the measurement iterations of all the forks
+                    List<Double> samples = new ArrayList<>();
+                    for (int f = 0; f < Math.max(forks, 1); f++) {
+                        double[] throughputs = (forks == 0)
+                                ? run(structure, operation, exponent, warmups, iterations, millis * 1_000_000L)
+                                : fork(jvmArgs, structure, operation, exponent, warmups, iterations, millis);
+                        if (throughputs != null) {
+                            for (double throughput : throughputs) {
+                                samples.add(throughput);
+                            }
+                        }
+                    }
+                    if (samples.isEmpty()) {
+                        continue;
+                    }
+
+                    double[] throughputs = new double[samples.size()];
+                    double[] averageTimes = new double[samples.size()];
+                    for (int i = 0; i < throughputs.length; i++) {
+                        throughputs[i] = samples.get(i) / 1000.0;
+                        averageTimes[i] = 1e9 / samples.get(i);
+                    }
+                    System.out.println(row(operation, structure, exponent, "thrpt", throughputs.length,
+                            mean(throughputs), error(throughputs), "ops/ms"));
+                    System.out.println(row(operation, structure, exponent, "avgt", averageTimes.length,
+                            mean(averageTimes), error(averageTimes), "ns/op"));
+                }
+            }
+        }
+    }
+}
@@ -1,3 +1,4 @@
+import java.util.Iterator;
 import java.util.Scanner;
 
 /**
@@ -32,7 +33,8 @@ public class CommandLineTest {
                     + "(c) Find the closest key after\n"
                     + "(d) Remove an element\n"
                     + "(e) Print the Skip list\n"
-                    + "(f) Exit");
+                    + "(f) Print the keys in a range\n"
+                    + "(g) Exit");
             System.out.print(">> ");
             skipListOption();
         }
@@ -68,7 +70,7 @@ public class CommandLineTest {
             System.out.print(">> ");
             int key = input.nextInt();
             int cka = avlTree.closestKeyAfter(key);
-            if (cka != 0) {
+            if (cka != IntOrderedMap.NO_KEY) {
                 System.out.println("The closet key after the element is " + cka);
             } else {
                 System.out.println("The closet key after the element does not exist!");
@@ -159,7 +161,7 @@ public class CommandLineTest {
             System.out.print(">> ");
             int key = input.nextInt();
             int cka = skipList.closestKeyAfter(key);
-            if (cka != SkipListNode.END) {
+            if (cka != IntOrderedMap.NO_KEY) {
                 System.out.println("The closet key after the element is " + cka);
             } else {
                 System.out.println("The closet key after the element does not exist!");
@@ -184,8 +186,26 @@ public class CommandLineTest {
             System.out.println(skipList);
             showMenu("b");
         }
-        // Exit
+        // Print the keys in a range, both ways
+        // (2147483647 as "to" includes the largest keys)
         else if (option.equals("f")) {
+            System.out.println("Range operation: please input the keys \"from\" and \"to\":");
+            System.out.print(">> ");
+            int from = input.nextInt();
+            int to = input.nextInt();
+            StringBuilder ascending = new StringBuilder();
+            skipList.rangeStream(from, to).forEach(node -> ascending.append(node.getKey()).append(" "));
+            StringBuilder descending = new StringBuilder();
+            Iterator<SkipListNode> iterator = skipList.descendingRange(from, to);
+            while (iterator.hasNext()) {
+                descending.append(iterator.next().getKey()).append(" ");
+            }
+            System.out.println("Ascending: " + ascending);
+            System.out.println("Descending: " + descending);
+            showMenu("b");
+        }
+        // Exit
+        else if (option.equals("g")) {
             System.exit(0);
         }
         // Invalid input
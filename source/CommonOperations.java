@@ -23,6 +23,9 @@ public interface CommonOperations<T> {
 
     /**
      * Find the closest key after the "key"
+     * If it does not exist, return IntOrderedMap.NO_KEY (Integer.MAX_VALUE),
+     * the key of node "end" in skip list
+     * (AVL tree returned 0 before IntOrderedMap)
      */
     Integer closestKeyAfter(Integer key);
 
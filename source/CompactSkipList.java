@@ -0,0 +1,225 @@
+import java.util.Random;
+
+/**
+ * CompactSkipList.java
+ * Implementing the skip list with one node per key
+ * Instead of a tower of SkipListNode objects linked by "up" and "down",
+ * every key is a single CompactSkipListNode holding an array of successors,
+ * one for each level the key is promoted to.
+ */
+
+public class CompactSkipList implements CommonOperations {
+    private CompactSkipListNode start;
+    private CompactSkipListNode end;
+    private int size; // the size of the skip list
+    private int maxLevel; // the maximum level
+    private Random random;
+
+    /**
+     * Constructor
+     * Initialize the compact skip list
+     */
+    public CompactSkipList() {
+        end = new CompactSkipListNode(CompactSkipListNode.END, null, 0);
+        start = new CompactSkipListNode(CompactSkipListNode.START, null, 1);
+        start.setSuccessor(0, end);
+        maxLevel = 1;
+        size = 0;
+
+        random = new Random();
+    }
+
+    /**
+     * Get the size of the skip list
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the maximum level of the skip list
+     */
+    public int getMaxLevel() {
+        return maxLevel;
+    }
+
+    /**
+     * Insert the key-value pair into the skip list
+     * Return the node
+     */
+    @Override
+    public CompactSkipListNode insertElement(Integer key, String value) {
+        int k = key;
+
+        // Flip coins
+        // 1 represents the head of the coin, we keep promoting the node to the upper level
+        int height = 1;
+        while (random.nextInt(2) == 1) {
+            height++;
+        }
+        // Create new levels if necessary
+        if (height > maxLevel) {
+            start.grow(height, end);
+        }
+
+        // update[i] is the last node before "key" in level i + 1
+        int levels = Math.max(height, maxLevel);
+        CompactSkipListNode[] update = new CompactSkipListNode[levels];
+        CompactSkipListNode node = start;
+        for (int level = levels - 1; level >= 0; level--) {
+            // Go right
+            while (node.getSuccessor(level).getKey() < k) {
+                node = node.getSuccessor(level);
+            }
+            update[level] = node;
+        }
+
+        // If the successor in the bottom level has the key,
+        // that means the key has already existed in the skip list
+        // Report the Error
+        if (node.getSuccessor(0).getKey() == k) {
+            System.out.println("Error: Insert replicated key: " + key);
+            return null;
+        }
+
+        // Link the new node after update[i] in every level it is promoted to
+        CompactSkipListNode newNode = new CompactSkipListNode(k, value, height);
+        for (int level = 0; level < height; level++) {
+            newNode.setSuccessor(level, update[level].getSuccessor(level));
+            update[level].setSuccessor(level, newNode);
+        }
+
+        maxLevel = levels;
+        size++;
+        return newNode;
+    }
+
+    /**
+     * Find the element whose key == "key"
+     * If the element exists, then return it
+     * Else return null
+     */
+    @Override
+    public CompactSkipListNode findElement(Integer key) {
+        int k = key;
+        CompactSkipListNode node = start;
+        for (int level = maxLevel - 1; level >= 0; level--) {
+            // Go right
+            while (node.getSuccessor(level).getKey() < k) {
+                node = node.getSuccessor(level);
+            }
+            // The node is the same object in every level,
+            // so we can return it as soon as we meet it
+            if (node.getSuccessor(level).getKey() == k) {
+                return node.getSuccessor(level);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find the node whose key is the closest key after the "key"
+     */
+    @Override
+    public Integer closestKeyAfter(Integer key) {
+        return closestNodeAfter(key).getKey();
+    }
+
+    /**
+     * Find the closest node which key after the "key"
+     * If it does not exits, return node "end"
+     */
+    @Override
+    public CompactSkipListNode closestNodeAfter(Integer key) {
+        int k = key;
+        CompactSkipListNode node = start;
+        for (int level = maxLevel - 1; level >= 0; level--) {
+            // Go right
+            while (node.getSuccessor(level).getKey() <= k) {
+                node = node.getSuccessor(level);
+            }
+        }
+        return node.getSuccessor(0);
+    }
+
+    /**
+     * Remove the node whose key == "key"
+     * and then return it
+     */
+    @Override
+    public CompactSkipListNode removeElement(Integer key) {
+        int k = key;
+        CompactSkipListNode[] update = new CompactSkipListNode[maxLevel];
+        CompactSkipListNode node = start;
+        for (int level = maxLevel - 1; level >= 0; level--) {
+            // Go right
+            while (node.getSuccessor(level).getKey() < k) {
+                node = node.getSuccessor(level);
+            }
+            update[level] = node;
+        }
+
+        // If the node does not exists, then return null
+        CompactSkipListNode toRemoveNode = node.getSuccessor(0);
+        if (toRemoveNode.getKey() != k) {
+            return null;
+        }
+
+        // Unlink the node from every level it lives in
+        for (int level = 0; level < toRemoveNode.getHeight(); level++) {
+            update[level].setSuccessor(level, toRemoveNode.getSuccessor(level));
+        }
+
+        // Remove unnecessary upper level
+        while (maxLevel > 1 && start.getSuccessor(maxLevel - 1) == end) {
+            maxLevel--;
+        }
+
+        size--;
+        return toRemoveNode;
+    }
+
+    /**
+     * Find the Element
+     * If we find the node, then return true
+     * Else return false
+     */
+    @Override
+    public boolean findElementBoolean(Integer key) {
+        return findElement(key) != null;
+    }
+
+    /*
+     * Destroy the skip list
+     */
+    @Override
+    public void destroy() {
+        start = new CompactSkipListNode(CompactSkipListNode.START, null, 1);
+        start.setSuccessor(0, end);
+        maxLevel = 1;
+        size = 0;
+    }
+
+    /**
+     * toString function helps print skip list
+     */
+    @Override
+    public String toString() {
+        if (getSize() == 0) {
+            return "THe skip list is empty.\n";
+        }
+
+        StringBuilder output = new StringBuilder();
+        for (int level = maxLevel - 1; level >= 0; level--) {
+            output.append("Level ").append(level + 1).append(": start-");
+            CompactSkipListNode node = start.getSuccessor(level);
+            while (node.getKey() != CompactSkipListNode.END) {
+                output.append(node.getKey()).append("-");
+                node = node.getSuccessor(level);
+            }
+            output.append("end\n");
+        }
+        return output.toString();
+    }
+}
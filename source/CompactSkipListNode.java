@@ -0,0 +1,81 @@
+import java.util.Arrays;
+
+/**
+ * CompactSkipListNode.java
+ * Implementing the compact skip list node
+ * One node per key, holding its successors of every level in one array
+ */
+
+public class CompactSkipListNode {
+    private int key;
+    private String value;
+    // successors[i] is the successor in level i + 1
+    private CompactSkipListNode[] successors;
+
+    public final static int START = Integer.MIN_VALUE;
+    public final static int END = Integer.MAX_VALUE;
+
+    /**
+     * Constructor
+     * Initialize the compact skip list node with "height" levels
+     */
+    public CompactSkipListNode(int key, String value, int height) {
+        this.key = key;
+        this.value = value;
+        this.successors = new CompactSkipListNode[height];
+    }
+
+    public int getKey() {
+        return key;
+    }
+
+    public void setKey(int key) {
+        this.key = key;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Get the number of levels the node lives in
+     */
+    public int getHeight() {
+        return successors.length;
+    }
+
+    /**
+     * Get the successor in level "level" (0 is the bottom level)
+     */
+    public CompactSkipListNode getSuccessor(int level) {
+        return successors[level];
+    }
+
+    public void setSuccessor(int level, CompactSkipListNode successor) {
+        successors[level] = successor;
+    }
+
+    /**
+     * Grow the node to "height" levels
+     * The new levels point to "successor"
+     */
+    public void grow(int height, CompactSkipListNode successor) {
+        int oldHeight = successors.length;
+        if (height > oldHeight) {
+            successors = Arrays.copyOf(successors, height);
+            Arrays.fill(successors, oldHeight, height, successor);
+        }
+    }
+
+    /**
+     * toString function helps print compact skip list node
+     */
+    @Override
+    public String toString() {
+        return "key-value: " + key + "-" + value;
+    }
+}
@@ -0,0 +1,850 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ConcurrentAVLTree.java
+ * Implementing the concurrent AVL tree with optimistic reads
+ * (the relaxed balance AVL tree of Bronson, Casper, Chafi and Olukotun)
+ * findElement and closestNodeAfter never lock. They go down the tree hand over hand,
+ * reading the version of a node before and after reading its child,
+ * and go back up to retry when the node was rotated in between.
+ * Writers lock only the nodes they link, unlink or rotate, parents before children.
+ * A removed node with two children stays in the tree as a routing node
+ * (its value becomes null) and is unlinked later when it has at most one child.
+ * Values must not be null, since a null value marks a routing node.
+ */
+
+public class ConcurrentAVLTree implements CommonOperations {
+    // Returned by the attempt methods to ask the caller to retry
+    private final static ConcurrentAVLTreeNode RETRY = new ConcurrentAVLTreeNode(0, null, null);
+
+    // The results of nodeCondition other than a new height
+    private final static int UNLINK_REQUIRED = -1;
+    private final static int REBALANCE_REQUIRED = -2;
+    private final static int NOTHING_REQUIRED = -3;
+
+    // The root is the right child of rootHolder, which is never rotated
+    private final ConcurrentAVLTreeNode rootHolder;
+    private final AtomicInteger size; // the size of the AVL tree
+
+    /**
+     * Constructor
+     * Initialize the concurrent AVL tree
+     */
+    public ConcurrentAVLTree() {
+        rootHolder = new ConcurrentAVLTreeNode(Integer.MIN_VALUE, null, null);
+        size = new AtomicInteger(0);
+    }
+
+    /**
+     * Get the size of the AVL tree
+     */
+    @Override
+    public int getSize() {
+        return size.get();
+    }
+
+    /**
+     * Get the height of the AVL tree
+     */
+    public int getHeight() {
+        return getHeight(rootHolder.getRightChild());
+    }
+
+    private static int getHeight(ConcurrentAVLTreeNode node) {
+        return (node != null) ? node.getHeight() : 0;
+    }
+
+    private static boolean isShrinkingOrUnlinked(long version) {
+        return (version & (ConcurrentAVLTreeNode.SHRINKING | ConcurrentAVLTreeNode.UNLINKED)) != 0;
+    }
+
+    private static boolean isUnlinked(long version) {
+        return version == ConcurrentAVLTreeNode.UNLINKED;
+    }
+
+    private static long beginChange(long version) {
+        return version | ConcurrentAVLTreeNode.SHRINKING;
+    }
+
+    private static long endChange(long version) {
+        return (version & ~ConcurrentAVLTreeNode.SHRINKING) + ConcurrentAVLTreeNode.SHRINK_COUNT_INCREMENT;
+    }
+
+    /**
+     * Find the node whose key equals to "key"
+     * If the node exists, then return the node
+     * Else return null
+     */
+    @Override
+    public ConcurrentAVLTreeNode findElement(Integer key) {
+        ConcurrentAVLTreeNode node = search(key, false);
+        return (node != null && node.getValue() != null) ? node : null;
+    }
+
+    /**
+     * Find the node whose key equals to "key"
+     * If the node exists, then return true
+     * Else return false
+     */
+    @Override
+    public boolean findElementBoolean(Integer key) {
+        return findElement(key) != null;
+    }
+
+    /**
+     * Find the closest key after the "key"
+     * If it does not exits, return NO_KEY;
+     */
+    @Override
+    public Integer closestKeyAfter(Integer key) {
+        ConcurrentAVLTreeNode CNA = closestNodeAfter(key);
+        return (CNA != null) ? CNA.getKey() : IntOrderedMap.NO_KEY;
+    }
+
+    /**
+     * Find the closest node which key after the "key"
+     * If it does not exits, return null;
+     */
+    @Override
+    public ConcurrentAVLTreeNode closestNodeAfter(Integer key) {
+        ConcurrentAVLTreeNode CNA = search(key, true);
+        // Skip the routing nodes
+        while (CNA != null && CNA.getValue() == null) {
+            CNA = search(CNA.getKey(), true);
+        }
+        return CNA;
+    }
+
+    /**
+     * Optimistic search from the root
+     * If "higher" is false, return the node whose key == "key" (maybe a routing node)
+     * Else return the node with the smallest key > "key" (maybe a routing node)
+     * Return null if there is no such node
+     */
+    private ConcurrentAVLTreeNode search(int key, boolean higher) {
+        while (true) {
+            ConcurrentAVLTreeNode root = rootHolder.getRightChild();
+            if (root == null) {
+                return null;
+            }
+            long version = root.getVersion();
+            if (isShrinkingOrUnlinked(version)) {
+                root.waitUntilShrinkCompleted(version);
+            } else if (root == rootHolder.getRightChild()) {
+                ConcurrentAVLTreeNode result = attemptSearch(key, higher, root, version, null);
+                if (result != RETRY) {
+                    return result;
+                }
+            }
+        }
+    }
+
+    /**
+     * Search the subtree of "node", which was reached when its version was "nodeVersion"
+     * "candidate" is the smallest node > key met on the way down
+     * Return RETRY if the node has been rotated since then
+     */
+    private ConcurrentAVLTreeNode attemptSearch(int key, boolean higher, ConcurrentAVLTreeNode node,
+                                                long nodeVersion, ConcurrentAVLTreeNode candidate) {
+        if (!higher && key == node.getKey()) {
+            return node;
+        }
+        boolean toLeft = key < node.getKey();
+        if (higher && toLeft) {
+            candidate = node;
+        }
+        while (true) {
+            ConcurrentAVLTreeNode child = node.getChild(toLeft);
+            if (child == null) {
+                // The node has no child on the way,
+                // it is the end only if the node has not been rotated
+                if (node.getVersion() != nodeVersion) {
+                    return RETRY;
+                }
+                return candidate;
+            }
+
+            long childVersion = child.getVersion();
+            if (isShrinkingOrUnlinked(childVersion)) {
+                child.waitUntilShrinkCompleted(childVersion);
+                if (node.getVersion() != nodeVersion) {
+                    return RETRY;
+                }
+            } else if (child != node.getChild(toLeft)) {
+                if (node.getVersion() != nodeVersion) {
+                    return RETRY;
+                }
+            } else {
+                // The child was read while the node had not been rotated,
+                // so it is the right subtree to go into
+                if (node.getVersion() != nodeVersion) {
+                    return RETRY;
+                }
+                ConcurrentAVLTreeNode result = attemptSearch(key, higher, child, childVersion, candidate);
+                if (result != RETRY) {
+                    return result;
+                }
+            }
+        }
+    }
+
+    /**
+     * Insert the key-value pair into the AVL tree
+     * Return the node
+     */
+    @Override
+    public ConcurrentAVLTreeNode insertElement(Integer key, String value) {
+        if (value == null) {
+            System.out.println("Error: Insert null value: " + key);
+            return null;
+        }
+        ConcurrentAVLTreeNode node = update(key, value);
+        // If the key has already existed in the AVL tree
+        // Report the Error
+        if (node == null) {
+            System.out.println("Error: Insert replicated key: " + key);
+            return null;
+        }
+        size.incrementAndGet();
+        return node;
+    }
+
+    /**
+     * Remove the node whose key == "key"
+     * and then return it
+     * The value of the returned node has been cleared
+     */
+    @Override
+    public ConcurrentAVLTreeNode removeElement(Integer key) {
+        ConcurrentAVLTreeNode node = update(key, null);
+        if (node != null) {
+            size.decrementAndGet();
+        }
+        return node;
+    }
+
+    /**
+     * Insert the key with "value", or remove it if "value" is null
+     * Return the inserted or removed node,
+     * or null if the key has already existed (insertion) or does not exist (removal)
+     */
+    private ConcurrentAVLTreeNode update(int key, String value) {
+        while (true) {
+            ConcurrentAVLTreeNode root = rootHolder.getRightChild();
+            if (root == null) {
+                if (value == null) {
+                    return null;
+                }
+                synchronized (rootHolder) {
+                    if (rootHolder.getRightChild() == null) {
+                        ConcurrentAVLTreeNode newNode = new ConcurrentAVLTreeNode(key, value, rootHolder);
+                        rootHolder.setRightChild(newNode);
+                        rootHolder.setHeight(2);
+                        return newNode;
+                    }
+                }
+            } else {
+                long version = root.getVersion();
+                if (isShrinkingOrUnlinked(version)) {
+                    root.waitUntilShrinkCompleted(version);
+                } else if (root == rootHolder.getRightChild()) {
+                    ConcurrentAVLTreeNode result = attemptUpdate(key, value, rootHolder, root, version);
+                    if (result != RETRY) {
+                        return result;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Update the subtree of "node", which was reached when its version was "nodeVersion"
+     * Return RETRY if the node has been rotated since then
+     */
+    private ConcurrentAVLTreeNode attemptUpdate(int key, String value, ConcurrentAVLTreeNode parent,
+                                                ConcurrentAVLTreeNode node, long nodeVersion) {
+        if (key == node.getKey()) {
+            return attemptNodeUpdate(value, parent, node);
+        }
+        boolean toLeft = key < node.getKey();
+        while (true) {
+            ConcurrentAVLTreeNode child = node.getChild(toLeft);
+            if (node.getVersion() != nodeVersion) {
+                return RETRY;
+            }
+
+            if (child == null) {
+                // The key does not exist
+                if (value == null) {
+                    return null;
+                }
+                ConcurrentAVLTreeNode newNode = null;
+                ConcurrentAVLTreeNode damaged = null;
+                synchronized (node) {
+                    // The node cannot be rotated while we hold its lock
+                    if (node.getVersion() != nodeVersion) {
+                        return RETRY;
+                    }
+                    // If another thread has linked a child here, retry from the node
+                    if (node.getChild(toLeft) == null) {
+                        newNode = new ConcurrentAVLTreeNode(key, value, node);
+                        node.setChild(toLeft, newNode);
+                        damaged = fixHeight(node);
+                    }
+                }
+                if (newNode != null) {
+                    fixHeightAndRebalance(damaged);
+                    return newNode;
+                }
+            } else {
+                long childVersion = child.getVersion();
+                if (isShrinkingOrUnlinked(childVersion)) {
+                    child.waitUntilShrinkCompleted(childVersion);
+                } else if (child == node.getChild(toLeft)) {
+                    if (node.getVersion() != nodeVersion) {
+                        return RETRY;
+                    }
+                    ConcurrentAVLTreeNode result = attemptUpdate(key, value, node, child, childVersion);
+                    if (result != RETRY) {
+                        return result;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Update the node whose key == "key"
+     */
+    private ConcurrentAVLTreeNode attemptNodeUpdate(String value, ConcurrentAVLTreeNode parent,
+                                                    ConcurrentAVLTreeNode node) {
+        // Removal of a routing node
+        if (value == null && node.getValue() == null) {
+            return null;
+        }
+
+        // If the node has at most one child, then unlink it,
+        // which needs the locks of its parent and itself
+        if (value == null && (node.getLeftChild() == null || node.getRightChild() == null)) {
+            ConcurrentAVLTreeNode damaged;
+            synchronized (parent) {
+                if (isUnlinked(parent.getVersion()) || node.getParent() != parent) {
+                    return RETRY;
+                }
+                synchronized (node) {
+                    if (node.getValue() == null) {
+                        return null;
+                    }
+                    if (!attemptUnlink(parent, node)) {
+                        return RETRY;
+                    }
+                }
+                damaged = fixHeight(parent);
+            }
+            fixHeightAndRebalance(damaged);
+            return node;
+        }
+
+        // Else update the value in place
+        synchronized (node) {
+            if (isUnlinked(node.getVersion())) {
+                return RETRY;
+            }
+            if (value != null) {
+                // Only a routing node can take the value
+                if (node.getValue() != null) {
+                    return null;
+                }
+                node.setValue(value);
+                return node;
+            }
+            if (node.getValue() == null) {
+                return null;
+            }
+            // The node has lost a child in between, so it should be unlinked instead
+            if (node.getLeftChild() == null || node.getRightChild() == null) {
+                return RETRY;
+            }
+            node.setValue(null);
+            return node;
+        }
+    }
+
+    /**
+     * Replace "node" with its only child (or null)
+     * "parent" and "node" must be locked
+     * Return false if it is not possible any more
+     */
+    private boolean attemptUnlink(ConcurrentAVLTreeNode parent, ConcurrentAVLTreeNode node) {
+        ConcurrentAVLTreeNode parentLeft = parent.getLeftChild();
+        ConcurrentAVLTreeNode parentRight = parent.getRightChild();
+        if (parentLeft != node && parentRight != node) {
+            return false;
+        }
+        ConcurrentAVLTreeNode left = node.getLeftChild();
+        ConcurrentAVLTreeNode right = node.getRightChild();
+        if (left != null && right != null) {
+            return false;
+        }
+
+        ConcurrentAVLTreeNode splice = (left != null) ? left : right;
+        if (parentLeft == node) {
+            parent.setLeftChild(splice);
+        } else {
+            parent.setRightChild(splice);
+        }
+        if (splice != null) {
+            splice.setParent(parent);
+        }
+        node.setVersion(ConcurrentAVLTreeNode.UNLINKED);
+        node.setValue(null);
+        return true;
+    }
+
+    /**
+     * What the node needs
+     * UNLINK_REQUIRED if it is a routing node with at most one child,
+     * REBALANCE_REQUIRED if its subtrees differ in height by more than 1,
+     * the new height if only its height is wrong,
+     * or NOTHING_REQUIRED
+     */
+    private int nodeCondition(ConcurrentAVLTreeNode node) {
+        ConcurrentAVLTreeNode left = node.getLeftChild();
+        ConcurrentAVLTreeNode right = node.getRightChild();
+        if ((left == null || right == null) && node.getValue() == null) {
+            return UNLINK_REQUIRED;
+        }
+        int height = node.getHeight();
+        int leftHeight = getHeight(left);
+        int rightHeight = getHeight(right);
+        int newHeight = 1 + Math.max(leftHeight, rightHeight);
+        int balance = leftHeight - rightHeight;
+        if (balance < -1 || balance > 1) {
+            return REBALANCE_REQUIRED;
+        }
+        return (height != newHeight) ? newHeight : NOTHING_REQUIRED;
+    }
+
+    /**
+     * Go up from the damaged node, fixing heights, unlinking routing nodes
+     * and rotating, until a node needs nothing
+     */
+    private void fixHeightAndRebalance(ConcurrentAVLTreeNode node) {
+        while (node != null && node.getParent() != null) {
+            int condition = nodeCondition(node);
+            if (condition == NOTHING_REQUIRED || isUnlinked(node.getVersion())) {
+                return;
+            }
+            if (condition != UNLINK_REQUIRED && condition != REBALANCE_REQUIRED) {
+                synchronized (node) {
+                    node = fixHeight(node);
+                }
+            } else {
+                ConcurrentAVLTreeNode parent = node.getParent();
+                synchronized (parent) {
+                    if (!isUnlinked(parent.getVersion()) && node.getParent() == parent) {
+                        synchronized (node) {
+                            node = rebalance(parent, node);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Fix the height of the locked node
+     * Return the next damaged node, or null if there is nothing more to fix
+     */
+    private ConcurrentAVLTreeNode fixHeight(ConcurrentAVLTreeNode node) {
+        int condition = nodeCondition(node);
+        switch (condition) {
+            case REBALANCE_REQUIRED:
+            case UNLINK_REQUIRED:
+                // Cannot fix it with this lock only
+                return node;
+            case NOTHING_REQUIRED:
+                return null;
+            default:
+                node.setHeight(condition);
+                // The parent may be damaged now,
+                // but we cannot lock it while holding the child's lock
+                return node.getParent();
+        }
+    }
+
+    /**
+     * Unlink or rotate the node
+     * "parent" and "node" must be locked
+     * Return the next damaged node, or null if there is nothing more to fix
+     */
+    private ConcurrentAVLTreeNode rebalance(ConcurrentAVLTreeNode parent, ConcurrentAVLTreeNode node) {
+        ConcurrentAVLTreeNode left = node.getLeftChild();
+        ConcurrentAVLTreeNode right = node.getRightChild();
+        if ((left == null || right == null) && node.getValue() == null) {
+            if (attemptUnlink(parent, node)) {
+                return fixHeight(parent);
+            } else {
+                return node;
+            }
+        }
+
+        int height = node.getHeight();
+        int leftHeight = getHeight(left);
+        int rightHeight = getHeight(right);
+        int newHeight = 1 + Math.max(leftHeight, rightHeight);
+        int balance = leftHeight - rightHeight;
+        if (balance > 1) {
+            return rebalanceToRight(parent, node, left, rightHeight);
+        } else if (balance < -1) {
+            return rebalanceToLeft(parent, node, right, leftHeight);
+        } else if (newHeight != height) {
+            node.setHeight(newHeight);
+            return fixHeight(parent);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * The left subtree is too high, rotate the node to the right
+     * (or its left child to the left first)
+     */
+    private ConcurrentAVLTreeNode rebalanceToRight(ConcurrentAVLTreeNode parent, ConcurrentAVLTreeNode node,
+                                                   ConcurrentAVLTreeNode left, int rightHeight) {
+        synchronized (left) {
+            int leftHeight = left.getHeight();
+            if (leftHeight - rightHeight <= 1) {
+                return node;
+            }
+            ConcurrentAVLTreeNode leftRight = left.getRightChild();
+            int leftLeftHeight = getHeight(left.getLeftChild());
+            int leftRightHeight = getHeight(leftRight);
+            if (leftLeftHeight >= leftRightHeight) {
+                return singleRightRotation(parent, node, left, rightHeight, leftLeftHeight, leftRight, leftRightHeight);
+            }
+
+            synchronized (leftRight) {
+                leftRightHeight = leftRight.getHeight();
+                if (leftLeftHeight >= leftRightHeight) {
+                    return singleRightRotation(parent, node, left, rightHeight, leftLeftHeight, leftRight, leftRightHeight);
+                }
+                int leftRightLeftHeight = getHeight(leftRight.getLeftChild());
+                int balance = leftLeftHeight - leftRightLeftHeight;
+                // Do the double rotation only if "left" ends up balanced
+                if (balance >= -1 && balance <= 1
+                        && !((leftLeftHeight == 0 || leftRightLeftHeight == 0) && left.getValue() == null)) {
+                    return leftRightRotation(parent, node, left, rightHeight, leftLeftHeight, leftRight, leftRightLeftHeight);
+                }
+            }
+            // Else fix "left" first, and the node later
+            return rebalanceToLeft(node, left, leftRight, leftLeftHeight);
+        }
+    }
+
+    /**
+     * The right subtree is too high, rotate the node to the left
+     * (or its right child to the right first)
+     */
+    private ConcurrentAVLTreeNode rebalanceToLeft(ConcurrentAVLTreeNode parent, ConcurrentAVLTreeNode node,
+                                                  ConcurrentAVLTreeNode right, int leftHeight) {
+        synchronized (right) {
+            int rightHeight = right.getHeight();
+            if (leftHeight - rightHeight >= -1) {
+                return node;
+            }
+            ConcurrentAVLTreeNode rightLeft = right.getLeftChild();
+            int rightLeftHeight = getHeight(rightLeft);
+            int rightRightHeight = getHeight(right.getRightChild());
+            if (rightRightHeight >= rightLeftHeight) {
+                return singleLeftRotation(parent, node, right, leftHeight, rightRightHeight, rightLeft, rightLeftHeight);
+            }
+
+            synchronized (rightLeft) {
+                rightLeftHeight = rightLeft.getHeight();
+                if (rightRightHeight >= rightLeftHeight) {
+                    return singleLeftRotation(parent, node, right, leftHeight, rightRightHeight, rightLeft, rightLeftHeight);
+                }
+                int rightLeftRightHeight = getHeight(rightLeft.getRightChild());
+                int balance = rightRightHeight - rightLeftRightHeight;
+                // Do the double rotation only if "right" ends up balanced
+                if (balance >= -1 && balance <= 1
+                        && !((rightRightHeight == 0 || rightLeftRightHeight == 0) && right.getValue() == null)) {
+                    return rightLeftRotation(parent, node, right, leftHeight, rightRightHeight, rightLeft, rightLeftRightHeight);
+                }
+            }
+            // Else fix "right" first, and the node later
+            return rebalanceToRight(node, right, rightLeft, rightRightHeight);
+        }
+    }
+
+    /**
+     * Single right rotation
+     * The node goes down to the right of "left"
+     * All the nodes involved must be locked
+     * Return the next damaged node, or null if there is nothing more to fix
+     */
+    private ConcurrentAVLTreeNode singleRightRotation(ConcurrentAVLTreeNode parent, ConcurrentAVLTreeNode node,
+                                                      ConcurrentAVLTreeNode left, int rightHeight, int leftLeftHeight,
+                                                      ConcurrentAVLTreeNode leftRight, int leftRightHeight) {
+        long nodeVersion = node.getVersion();
+        ConcurrentAVLTreeNode parentLeft = parent.getLeftChild();
+
+        node.setVersion(beginChange(nodeVersion));
+        node.setLeftChild(leftRight);
+        if (leftRight != null) {
+            leftRight.setParent(node);
+        }
+        left.setRightChild(node);
+        node.setParent(left);
+        if (parentLeft == node) {
+            parent.setLeftChild(left);
+        } else {
+            parent.setRightChild(left);
+        }
+        left.setParent(parent);
+
+        int newNodeHeight = 1 + Math.max(leftRightHeight, rightHeight);
+        node.setHeight(newNodeHeight);
+        left.setHeight(1 + Math.max(leftLeftHeight, newNodeHeight));
+        node.setVersion(endChange(nodeVersion));
+
+        // The node is the deepest damaged one
+        int nodeBalance = leftRightHeight - rightHeight;
+        if (nodeBalance < -1 || nodeBalance > 1) {
+            return node;
+        }
+        if ((leftRight == null || rightHeight == 0) && node.getValue() == null) {
+            return node;
+        }
+        // Then "left"
+        int leftBalance = leftLeftHeight - newNodeHeight;
+        if (leftBalance < -1 || leftBalance > 1) {
+            return left;
+        }
+        if (leftLeftHeight == 0 && left.getValue() == null) {
+            return left;
+        }
+        return fixHeight(parent);
+    }
+
+    /**
+     * Single left rotation
+     * The node goes down to the left of "right"
+     * All the nodes involved must be locked
+     * Return the next damaged node, or null if there is nothing more to fix
+     */
+    private ConcurrentAVLTreeNode singleLeftRotation(ConcurrentAVLTreeNode parent, ConcurrentAVLTreeNode node,
+                                                     ConcurrentAVLTreeNode right, int leftHeight, int rightRightHeight,
+                                                     ConcurrentAVLTreeNode rightLeft, int rightLeftHeight) {
+        long nodeVersion = node.getVersion();
+        ConcurrentAVLTreeNode parentLeft = parent.getLeftChild();
+
+        node.setVersion(beginChange(nodeVersion));
+        node.setRightChild(rightLeft);
+        if (rightLeft != null) {
+            rightLeft.setParent(node);
+        }
+        right.setLeftChild(node);
+        node.setParent(right);
+        if (parentLeft == node) {
+            parent.setLeftChild(right);
+        } else {
+            parent.setRightChild(right);
+        }
+        right.setParent(parent);
+
+        int newNodeHeight = 1 + Math.max(leftHeight, rightLeftHeight);
+        node.setHeight(newNodeHeight);
+        right.setHeight(1 + Math.max(newNodeHeight, rightRightHeight));
+        node.setVersion(endChange(nodeVersion));
+
+        // The node is the deepest damaged one
+        int nodeBalance = rightLeftHeight - leftHeight;
+        if (nodeBalance < -1 || nodeBalance > 1) {
+            return node;
+        }
+        if ((rightLeft == null || leftHeight == 0) && node.getValue() == null) {
+            return node;
+        }
+        // Then "right"
+        int rightBalance = rightRightHeight - newNodeHeight;
+        if (rightBalance < -1 || rightBalance > 1) {
+            return right;
+        }
+        if (rightRightHeight == 0 && right.getValue() == null) {
+            return right;
+        }
+        return fixHeight(parent);
+    }
+
+    /**
+     * Left right rotation
+     * "leftRight" goes up to the place of the node,
+     * with "left" and the node as its children
+     * All the nodes involved must be locked
+     * Return the next damaged node, or null if there is nothing more to fix
+     */
+    private ConcurrentAVLTreeNode leftRightRotation(ConcurrentAVLTreeNode parent, ConcurrentAVLTreeNode node,
+                                                    ConcurrentAVLTreeNode left, int rightHeight, int leftLeftHeight,
+                                                    ConcurrentAVLTreeNode leftRight, int leftRightLeftHeight) {
+        long nodeVersion = node.getVersion();
+        long leftVersion = left.getVersion();
+        ConcurrentAVLTreeNode parentLeft = parent.getLeftChild();
+        ConcurrentAVLTreeNode leftRightLeft = leftRight.getLeftChild();
+        ConcurrentAVLTreeNode leftRightRight = leftRight.getRightChild();
+        int leftRightRightHeight = getHeight(leftRightRight);
+
+        node.setVersion(beginChange(nodeVersion));
+        left.setVersion(beginChange(leftVersion));
+        node.setLeftChild(leftRightRight);
+        if (leftRightRight != null) {
+            leftRightRight.setParent(node);
+        }
+        left.setRightChild(leftRightLeft);
+        if (leftRightLeft != null) {
+            leftRightLeft.setParent(left);
+        }
+        leftRight.setLeftChild(left);
+        left.setParent(leftRight);
+        leftRight.setRightChild(node);
+        node.setParent(leftRight);
+        if (parentLeft == node) {
+            parent.setLeftChild(leftRight);
+        } else {
+            parent.setRightChild(leftRight);
+        }
+        leftRight.setParent(parent);
+
+        int newNodeHeight = 1 + Math.max(leftRightRightHeight, rightHeight);
+        node.setHeight(newNodeHeight);
+        int newLeftHeight = 1 + Math.max(leftLeftHeight, leftRightLeftHeight);
+        left.setHeight(newLeftHeight);
+        leftRight.setHeight(1 + Math.max(newLeftHeight, newNodeHeight));
+        node.setVersion(endChange(nodeVersion));
+        left.setVersion(endChange(leftVersion));
+
+        // The node is the deepest damaged one ("left" has been checked by the caller)
+        int nodeBalance = leftRightRightHeight - rightHeight;
+        if (nodeBalance < -1 || nodeBalance > 1) {
+            return node;
+        }
+        if ((leftRightRight == null || rightHeight == 0) && node.getValue() == null) {
+            return node;
+        }
+        // Then "leftRight"
+        int leftRightBalance = newLeftHeight - newNodeHeight;
+        if (leftRightBalance < -1 || leftRightBalance > 1) {
+            return leftRight;
+        }
+        return fixHeight(parent);
+    }
+
+    /**
+     * Right left rotation
+     * "rightLeft" goes up to the place of the node,
+     * with the node and "right" as its children
+     * All the nodes involved must be locked
+     * Return the next damaged node, or null if there is nothing more to fix
+     */
+    private ConcurrentAVLTreeNode rightLeftRotation(ConcurrentAVLTreeNode parent, ConcurrentAVLTreeNode node,
+                                                    ConcurrentAVLTreeNode right, int leftHeight, int rightRightHeight,
+                                                    ConcurrentAVLTreeNode rightLeft, int rightLeftRightHeight) {
+        long nodeVersion = node.getVersion();
+        long rightVersion = right.getVersion();
+        ConcurrentAVLTreeNode parentLeft = parent.getLeftChild();
+        ConcurrentAVLTreeNode rightLeftLeft = rightLeft.getLeftChild();
+        ConcurrentAVLTreeNode rightLeftRight = rightLeft.getRightChild();
+        int rightLeftLeftHeight = getHeight(rightLeftLeft);
+
+        node.setVersion(beginChange(nodeVersion));
+        right.setVersion(beginChange(rightVersion));
+        node.setRightChild(rightLeftLeft);
+        if (rightLeftLeft != null) {
+            rightLeftLeft.setParent(node);
+        }
+        right.setLeftChild(rightLeftRight);
+        if (rightLeftRight != null) {
+            rightLeftRight.setParent(right);
+        }
+        rightLeft.setRightChild(right);
+        right.setParent(rightLeft);
+        rightLeft.setLeftChild(node);
+        node.setParent(rightLeft);
+        if (parentLeft == node) {
+            parent.setLeftChild(rightLeft);
+        } else {
+            parent.setRightChild(rightLeft);
+        }
+        rightLeft.setParent(parent);
+
+        int newNodeHeight = 1 + Math.max(leftHeight, rightLeftLeftHeight);
+        node.setHeight(newNodeHeight);
+        int newRightHeight = 1 + Math.max(rightLeftRightHeight, rightRightHeight);
+        right.setHeight(newRightHeight);
+        rightLeft.setHeight(1 + Math.max(newNodeHeight, newRightHeight));
+        node.setVersion(endChange(nodeVersion));
+        right.setVersion(endChange(rightVersion));
+
+        // The node is the deepest damaged one ("right" has been checked by the caller)
+        int nodeBalance = rightLeftLeftHeight - leftHeight;
+        if (nodeBalance < -1 || nodeBalance > 1) {
+            return node;
+        }
+        if ((rightLeftLeft == null || leftHeight == 0) && node.getValue() == null) {
+            return node;
+        }
+        // Then "rightLeft"
+        int rightLeftBalance = newRightHeight - newNodeHeight;
+        if (rightLeftBalance < -1 || rightLeftBalance > 1) {
+            return rightLeft;
+        }
+        return fixHeight(parent);
+    }
+
+    /*
+     * Destroy the AVL tree
+     * It must not be called while other threads are using the tree
+     */
+    @Override
+    public void destroy() {
+        rootHolder.setRightChild(null);
+        rootHolder.setHeight(1);
+        size.set(0);
+    }
+
+    /**
+     * toString function helps print the AVL tree
+     * It is not a snapshot if other threads are updating the tree
+     */
+    @Override
+    public String toString() {
+        ConcurrentAVLTreeNode root = rootHolder.getRightChild();
+        // If the AVL tree is empty
+        if (root == null) {
+            return "The AVL tree is empty.";
+        }
+
+        StringBuilder output = new StringBuilder();
+        output.append(root.getKey()).append(" is root.\n");
+        ArrayDeque<ConcurrentAVLTreeNode> queue = new ArrayDeque<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            ConcurrentAVLTreeNode node = queue.remove();
+            ConcurrentAVLTreeNode left = node.getLeftChild();
+            ConcurrentAVLTreeNode right = node.getRightChild();
+            if (left != null) {
+                queue.add(left);
+                output.append(left.getKey()).append(" is ")
+                        .append(node.getKey()).append("'s left child.\n");
+            }
+            if (right != null) {
+                queue.add(right);
+                output.append(right.getKey()).append(" is ")
+                        .append(node.getKey()).append("'s right child.\n");
+            }
+        }
+        return output.toString();
+    }
+}
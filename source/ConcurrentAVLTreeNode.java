@@ -0,0 +1,130 @@
+/**
+ * ConcurrentAVLTreeNode.java
+ * Implementing the concurrent AVL tree node
+ * The version changes every time the node is rotated down (its key range shrinks),
+ * so a reader that saw the same version before and after reading a child
+ * knows that the child is still in the right key range.
+ */
+
+public class ConcurrentAVLTreeNode {
+    // The node has been removed from the tree
+    public final static long UNLINKED = 1L;
+    // The node is being rotated down
+    public final static long SHRINKING = 2L;
+    // Added to the version after each rotation
+    public final static long SHRINK_COUNT_INCREMENT = 4L;
+
+    private final static int SPIN_COUNT = 100;
+
+    private final int key;
+    // A null value means the node is only a routing node
+    private volatile String value;
+    private volatile int height;
+    private volatile long version;
+    private volatile ConcurrentAVLTreeNode parent;
+    private volatile ConcurrentAVLTreeNode leftChild;
+    private volatile ConcurrentAVLTreeNode rightChild;
+
+    // Constructor
+    public ConcurrentAVLTreeNode(int key, String value, ConcurrentAVLTreeNode parent) {
+        this.key = key;
+        this.value = value;
+        this.height = 1;
+        this.version = 0L;
+        this.parent = parent;
+    }
+
+    public int getKey() {
+        return key;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void setHeight(int height) {
+        this.height = height;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public ConcurrentAVLTreeNode getParent() {
+        return parent;
+    }
+
+    public void setParent(ConcurrentAVLTreeNode parent) {
+        this.parent = parent;
+    }
+
+    public ConcurrentAVLTreeNode getLeftChild() {
+        return leftChild;
+    }
+
+    public void setLeftChild(ConcurrentAVLTreeNode leftChild) {
+        this.leftChild = leftChild;
+    }
+
+    public ConcurrentAVLTreeNode getRightChild() {
+        return rightChild;
+    }
+
+    public void setRightChild(ConcurrentAVLTreeNode rightChild) {
+        this.rightChild = rightChild;
+    }
+
+    /**
+     * Get the left child if "left" is true, else the right child
+     */
+    public ConcurrentAVLTreeNode getChild(boolean left) {
+        return left ? leftChild : rightChild;
+    }
+
+    public void setChild(boolean left, ConcurrentAVLTreeNode child) {
+        if (left) {
+            leftChild = child;
+        } else {
+            rightChild = child;
+        }
+    }
+
+    /**
+     * Wait until the rotation which made the version "version" is done
+     * Spin for a while, then block on the lock held by the rotating thread
+     */
+    public void waitUntilShrinkCompleted(long version) {
+        if ((version & SHRINKING) == 0) {
+            return;
+        }
+        for (int i = 0; i < SPIN_COUNT; i++) {
+            if (this.version != version) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        synchronized (this) {
+            // The rotating thread holds the lock until the rotation is done
+        }
+    }
+
+    /**
+     * toString function helps print concurrent AVL tree node
+     */
+    @Override
+    public String toString() {
+        return "key-value: " + key + "-" + value;
+    }
+}
@@ -0,0 +1,339 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+
+/**
+ * ConcurrentSkipList.java
+ * Implementing the lock-free concurrent skip list
+ * Every successor link is an AtomicMarkableReference, and a node is
+ * removed by marking its successor links (logical deletion) from the top
+ * level down to the bottom level, then unlinking it (physical deletion).
+ * findElement and closestNodeAfter never block and never write,
+ * insertElement and removeElement only use CAS on successor links.
+ * Keys must be between START and END (exclusive).
+ */
+
+public class ConcurrentSkipList implements CommonOperations {
+    public final static int MAX_LEVEL = 32;
+
+    private final ConcurrentSkipListNode start;
+    private final ConcurrentSkipListNode end;
+    private final AtomicInteger size; // the size of the skip list
+    private final AtomicInteger maxLevel; // the highest level ever used
+
+    /**
+     * Constructor
+     * Initialize the concurrent skip list
+     */
+    public ConcurrentSkipList() {
+        start = new ConcurrentSkipListNode(ConcurrentSkipListNode.START, null, MAX_LEVEL);
+        end = new ConcurrentSkipListNode(ConcurrentSkipListNode.END, null, MAX_LEVEL);
+        for (int level = 0; level < MAX_LEVEL; level++) {
+            start.getSuccessor(level).set(end, false);
+        }
+        size = new AtomicInteger(0);
+        maxLevel = new AtomicInteger(1);
+    }
+
+    /**
+     * Get the size of the skip list
+     */
+    @Override
+    public int getSize() {
+        return size.get();
+    }
+
+    /**
+     * Get the maximum level of the skip list
+     */
+    public int getMaxLevel() {
+        return maxLevel.get();
+    }
+
+    /**
+     * Insert the key-value pair into the skip list
+     * Return the node
+     */
+    @Override
+    public ConcurrentSkipListNode insertElement(Integer key, String value) {
+        int height = randomHeight();
+        // Searches start from maxLevel, so raise it before the node is linked
+        maxLevel.accumulateAndGet(height, Math::max);
+
+        ConcurrentSkipListNode[] predecessors = new ConcurrentSkipListNode[MAX_LEVEL];
+        ConcurrentSkipListNode[] successors = new ConcurrentSkipListNode[MAX_LEVEL];
+        while (true) {
+            // If the key has already existed in the skip list
+            // Report the Error
+            if (find(key, predecessors, successors)) {
+                System.out.println("Error: Insert replicated key: " + key);
+                return null;
+            }
+
+            ConcurrentSkipListNode newNode = new ConcurrentSkipListNode(key, value, height);
+            for (int level = 0; level < height; level++) {
+                newNode.getSuccessor(level).set(successors[level], false);
+            }
+
+            // Linking the bottom level makes the node visible (linearization point)
+            // If it fails, then someone changed the predecessor, search again
+            if (!predecessors[0].getSuccessor(0).compareAndSet(successors[0], newNode, false, false)) {
+                continue;
+            }
+
+            // Link the upper levels one by one
+            for (int level = 1; level < height; level++) {
+                if (!linkUpperLevel(key, newNode, level, predecessors, successors)) {
+                    // The node is being removed, stop promoting it
+                    break;
+                }
+            }
+
+            size.incrementAndGet();
+            return newNode;
+        }
+    }
+
+    /**
+     * Link newNode into level "level" after predecessors[level]
+     * Return false if newNode has been removed meanwhile
+     */
+    private boolean linkUpperLevel(int key, ConcurrentSkipListNode newNode, int level,
+                                   ConcurrentSkipListNode[] predecessors,
+                                   ConcurrentSkipListNode[] successors) {
+        AtomicMarkableReference<ConcurrentSkipListNode> link = newNode.getSuccessor(level);
+        while (true) {
+            ConcurrentSkipListNode predecessor = predecessors[level];
+            ConcurrentSkipListNode successor = successors[level];
+
+            // Point newNode to the current successor
+            // The CAS fails only if a remover has marked the link
+            ConcurrentSkipListNode oldSuccessor = link.getReference();
+            if (link.isMarked()) {
+                return false;
+            }
+            if (oldSuccessor != successor && !link.compareAndSet(oldSuccessor, successor, false, false)) {
+                return false;
+            }
+
+            if (predecessor.getSuccessor(level).compareAndSet(successor, newNode, false, false)) {
+                return true;
+            }
+            // The predecessor changed, search again
+            find(key, predecessors, successors);
+        }
+    }
+
+    /**
+     * Find the element whose key == "key"
+     * If the element exists, then return it
+     * Else return null
+     */
+    @Override
+    public ConcurrentSkipListNode findElement(Integer key) {
+        ConcurrentSkipListNode node = closestNodeAtOrAfter(key);
+        if (node.getKey() == key) {
+            return node;
+        }
+        return null;
+    }
+
+    /**
+     * Find the node whose key is the closest key after the "key"
+     */
+    @Override
+    public Integer closestKeyAfter(Integer key) {
+        return closestNodeAfter(key).getKey();
+    }
+
+    /**
+     * Find the closest node which key after the "key"
+     * If it does not exits, return node "end"
+     */
+    @Override
+    public ConcurrentSkipListNode closestNodeAfter(Integer key) {
+        int k = key;
+        // closestNodeAtOrAfter(k + 1) without overflowing at END - 1
+        if (k == ConcurrentSkipListNode.END - 1) {
+            return end;
+        }
+        return closestNodeAtOrAfter(k + 1);
+    }
+
+    /**
+     * Find the first unmarked node in the bottom level whose key >= "key"
+     * This is a read-only traversal, so it never blocks and never retries:
+     * marked nodes are skipped rather than unlinked
+     */
+    private ConcurrentSkipListNode closestNodeAtOrAfter(int key) {
+        boolean[] marked = {false};
+        ConcurrentSkipListNode predecessor = start;
+        ConcurrentSkipListNode current = null;
+        for (int level = maxLevel.get() - 1; level >= 0; level--) {
+            current = predecessor.getSuccessor(level).getReference();
+            while (true) {
+                ConcurrentSkipListNode successor = current.getSuccessor(level).get(marked);
+                // Skip the logically removed nodes
+                while (marked[0]) {
+                    current = successor;
+                    successor = current.getSuccessor(level).get(marked);
+                }
+                // Go right
+                if (current.getKey() < key) {
+                    predecessor = current;
+                    current = successor;
+                }
+                // Go down
+                else {
+                    break;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Remove the node whose key == "key"
+     * and then return it
+     */
+    @Override
+    public ConcurrentSkipListNode removeElement(Integer key) {
+        ConcurrentSkipListNode[] predecessors = new ConcurrentSkipListNode[MAX_LEVEL];
+        ConcurrentSkipListNode[] successors = new ConcurrentSkipListNode[MAX_LEVEL];
+        // If the node does not exists, then return null
+        if (!find(key, predecessors, successors)) {
+            return null;
+        }
+        ConcurrentSkipListNode toRemoveNode = successors[0];
+
+        // Mark the upper level links from top to bottom
+        boolean[] marked = {false};
+        for (int level = toRemoveNode.getHeight() - 1; level > 0; level--) {
+            AtomicMarkableReference<ConcurrentSkipListNode> link = toRemoveNode.getSuccessor(level);
+            ConcurrentSkipListNode successor = link.get(marked);
+            while (!marked[0]) {
+                link.compareAndSet(successor, successor, false, true);
+                successor = link.get(marked);
+            }
+        }
+
+        // Mark the bottom level link
+        // Whoever marks it removes the node (linearization point)
+        AtomicMarkableReference<ConcurrentSkipListNode> link = toRemoveNode.getSuccessor(0);
+        ConcurrentSkipListNode successor = link.get(marked);
+        while (true) {
+            boolean markedByMe = link.compareAndSet(successor, successor, false, true);
+            successor = link.get(marked);
+            if (markedByMe) {
+                // Physically unlink the node
+                find(key, predecessors, successors);
+                size.decrementAndGet();
+                return toRemoveNode;
+            }
+            // Someone else removed it first
+            else if (marked[0]) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Find the Element
+     * If we find the node, then return true
+     * Else return false
+     */
+    @Override
+    public boolean findElementBoolean(Integer key) {
+        return findElement(key) != null;
+    }
+
+    /**
+     * Fill predecessors and successors with the neighbours of "key" in every level,
+     * unlinking the marked nodes met on the way
+     * Return true if the key exists in the bottom level
+     */
+    private boolean find(int key, ConcurrentSkipListNode[] predecessors, ConcurrentSkipListNode[] successors) {
+        boolean[] marked = {false};
+        retry:
+        while (true) {
+            ConcurrentSkipListNode predecessor = start;
+            int topLevel = maxLevel.get();
+            for (int level = MAX_LEVEL - 1; level >= topLevel; level--) {
+                predecessors[level] = start;
+                successors[level] = start.getSuccessor(level).getReference();
+            }
+            for (int level = topLevel - 1; level >= 0; level--) {
+                ConcurrentSkipListNode current = predecessor.getSuccessor(level).getReference();
+                while (true) {
+                    ConcurrentSkipListNode successor = current.getSuccessor(level).get(marked);
+                    // Unlink the logically removed nodes
+                    while (marked[0]) {
+                        if (!predecessor.getSuccessor(level).compareAndSet(current, successor, false, false)) {
+                            // The predecessor itself changed, start over
+                            continue retry;
+                        }
+                        current = successor;
+                        successor = current.getSuccessor(level).get(marked);
+                    }
+                    // Go right
+                    if (current.getKey() < key) {
+                        predecessor = current;
+                        current = successor;
+                    }
+                    // Go down
+                    else {
+                        break;
+                    }
+                }
+                predecessors[level] = predecessor;
+                successors[level] = current;
+            }
+            return successors[0].getKey() == key;
+        }
+    }
+
+    /**
+     * Flip coins in one step
+     * Every trailing zero of a random word is one head of the coin
+     */
+    private int randomHeight() {
+        int height = Integer.numberOfTrailingZeros(ThreadLocalRandom.current().nextInt()) + 1;
+        return Math.min(height, MAX_LEVEL);
+    }
+
+    /*
+     * Destroy the skip list
+     * It should not run concurrently with other operations
+     */
+    @Override
+    public void destroy() {
+        for (int level = 0; level < MAX_LEVEL; level++) {
+            start.getSuccessor(level).set(end, false);
+        }
+        size.set(0);
+    }
+
+    /**
+     * toString function helps print skip list
+     */
+    @Override
+    public String toString() {
+        if (getSize() == 0) {
+            return "THe skip list is empty.\n";
+        }
+
+        StringBuilder output = new StringBuilder();
+        for (int level = maxLevel.get() - 1; level >= 0; level--) {
+            output.append("Level ").append(level + 1).append(": start-");
+            ConcurrentSkipListNode node = start.getSuccessor(level).getReference();
+            while (node.getKey() != ConcurrentSkipListNode.END) {
+                if (!node.getSuccessor(level).isMarked()) {
+                    output.append(node.getKey()).append("-");
+                }
+                node = node.getSuccessor(level).getReference();
+            }
+            output.append("end\n");
+        }
+        return output.toString();
+    }
+}
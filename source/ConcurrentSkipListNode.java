@@ -0,0 +1,72 @@
+import java.util.concurrent.atomic.AtomicMarkableReference;
+
+/**
+ * ConcurrentSkipListNode.java
+ * Implementing the concurrent skip list node
+ */
+
+public class ConcurrentSkipListNode {
+    private final int key;
+    private volatile String value;
+    // successors[i] is the successor in level i + 1
+    // The mark of successors[i] means the node has been logically removed from level i + 1
+    private final AtomicMarkableReference<ConcurrentSkipListNode>[] successors;
+
+    public final static int START = Integer.MIN_VALUE;
+    public final static int END = Integer.MAX_VALUE;
+
+    /**
+     * Constructor
+     * Initialize the concurrent skip list node with "height" levels
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentSkipListNode(int key, String value, int height) {
+        this.key = key;
+        this.value = value;
+        this.successors = new AtomicMarkableReference[height];
+        for (int i = 0; i < height; i++) {
+            successors[i] = new AtomicMarkableReference<>(null, false);
+        }
+    }
+
+    public int getKey() {
+        return key;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Get the number of levels the node lives in
+     */
+    public int getHeight() {
+        return successors.length;
+    }
+
+    /**
+     * Get the (successor, mark) reference in level "level" (0 is the bottom level)
+     */
+    public AtomicMarkableReference<ConcurrentSkipListNode> getSuccessor(int level) {
+        return successors[level];
+    }
+
+    /**
+     * Whether the node has been logically removed from the bottom level
+     */
+    public boolean isRemoved() {
+        return successors[0].isMarked();
+    }
+
+    /**
+     * toString function helps print concurrent skip list node
+     */
+    @Override
+    public String toString() {
+        return "key-value: " + key + "-" + value;
+    }
+}
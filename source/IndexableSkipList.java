@@ -0,0 +1,318 @@
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * IndexableSkipList.java
+ * Implementing the indexable skip list
+ * Every link stores its width (how many bottom level steps it jumps over),
+ * so the position of a node is the sum of the widths on its search path.
+ * select, rank and countBetween run in O(log n) like findElement.
+ * Positions start from 1, and "start" is at position 0.
+ */
+
+public class IndexableSkipList implements CommonOperations {
+    public final static int MAX_LEVEL = 32;
+
+    private IndexableSkipListNode start;
+    private IndexableSkipListNode end;
+    private int size; // the size of the skip list
+    private int maxLevel; // the maximum level
+
+    /**
+     * Constructor
+     * Initialize the indexable skip list
+     */
+    public IndexableSkipList() {
+        end = new IndexableSkipListNode(IndexableSkipListNode.END, null, 0);
+        start = new IndexableSkipListNode(IndexableSkipListNode.START, null, 1);
+        start.setSuccessor(0, end);
+        start.setWidth(0, 1);
+        maxLevel = 1;
+        size = 0;
+    }
+
+    /**
+     * Get the size of the skip list
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the maximum level of the skip list
+     */
+    public int getMaxLevel() {
+        return maxLevel;
+    }
+
+    /**
+     * Insert the key-value pair into the skip list
+     * Return the node
+     */
+    @Override
+    public IndexableSkipListNode insertElement(Integer key, String value) {
+        int k = key;
+        int height = Math.min(Long.numberOfTrailingZeros(ThreadLocalRandom.current().nextLong()) + 1, MAX_LEVEL);
+
+        // Create new levels if necessary
+        // "start" links to "end" in the new levels, jumping over all the nodes
+        if (height > maxLevel) {
+            start.grow(height);
+            for (int level = maxLevel; level < height; level++) {
+                start.setSuccessor(level, end);
+                start.setWidth(level, size + 1);
+            }
+        }
+
+        // update[i] is the last node before "key" in level i + 1
+        // positions[i] is the position of update[i]
+        int levels = Math.max(height, maxLevel);
+        IndexableSkipListNode[] update = new IndexableSkipListNode[levels];
+        int[] positions = new int[levels];
+        IndexableSkipListNode node = start;
+        int position = 0;
+        for (int level = levels - 1; level >= 0; level--) {
+            // Go right
+            while (node.getSuccessor(level).getKey() < k) {
+                position += node.getWidth(level);
+                node = node.getSuccessor(level);
+            }
+            update[level] = node;
+            positions[level] = position;
+        }
+
+        // If the successor in the bottom level has the key,
+        // that means the key has already existed in the skip list
+        // Report the Error
+        if (node.getSuccessor(0).getKey() == k) {
+            System.out.println("Error: Insert replicated key: " + key);
+            return null;
+        }
+
+        // The new node is at position + 1
+        // Split the links it is linked into, and widen the links jumping over it
+        IndexableSkipListNode newNode = new IndexableSkipListNode(k, value, height);
+        for (int level = 0; level < levels; level++) {
+            IndexableSkipListNode before = update[level];
+            if (level < height) {
+                int widthBefore = position - positions[level] + 1;
+                newNode.setSuccessor(level, before.getSuccessor(level));
+                newNode.setWidth(level, before.getWidth(level) - widthBefore + 1);
+                before.setSuccessor(level, newNode);
+                before.setWidth(level, widthBefore);
+            } else {
+                before.setWidth(level, before.getWidth(level) + 1);
+            }
+        }
+
+        maxLevel = levels;
+        size++;
+        return newNode;
+    }
+
+    /**
+     * Find the element whose key == "key"
+     * If the element exists, then return it
+     * Else return null
+     */
+    @Override
+    public IndexableSkipListNode findElement(Integer key) {
+        int k = key;
+        IndexableSkipListNode node = start;
+        for (int level = maxLevel - 1; level >= 0; level--) {
+            // Go right
+            while (node.getSuccessor(level).getKey() < k) {
+                node = node.getSuccessor(level);
+            }
+            // The node is the same object in every level,
+            // so we can return it as soon as we meet it
+            if (node.getSuccessor(level).getKey() == k) {
+                return node.getSuccessor(level);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find the node whose key is the closest key after the "key"
+     */
+    @Override
+    public Integer closestKeyAfter(Integer key) {
+        return closestNodeAfter(key).getKey();
+    }
+
+    /**
+     * Find the closest node which key after the "key"
+     * If it does not exits, return node "end"
+     */
+    @Override
+    public IndexableSkipListNode closestNodeAfter(Integer key) {
+        int k = key;
+        IndexableSkipListNode node = start;
+        for (int level = maxLevel - 1; level >= 0; level--) {
+            // Go right
+            while (node.getSuccessor(level).getKey() <= k) {
+                node = node.getSuccessor(level);
+            }
+        }
+        return node.getSuccessor(0);
+    }
+
+    /**
+     * Remove the node whose key == "key"
+     * and then return it
+     */
+    @Override
+    public IndexableSkipListNode removeElement(Integer key) {
+        int k = key;
+        IndexableSkipListNode[] update = new IndexableSkipListNode[maxLevel];
+        IndexableSkipListNode node = start;
+        for (int level = maxLevel - 1; level >= 0; level--) {
+            // Go right
+            while (node.getSuccessor(level).getKey() < k) {
+                node = node.getSuccessor(level);
+            }
+            update[level] = node;
+        }
+
+        // If the node does not exists, then return null
+        IndexableSkipListNode toRemoveNode = node.getSuccessor(0);
+        if (toRemoveNode.getKey() != k) {
+            return null;
+        }
+
+        // Merge the links around the node, and narrow the links jumping over it
+        for (int level = 0; level < maxLevel; level++) {
+            IndexableSkipListNode before = update[level];
+            if (level < toRemoveNode.getHeight()) {
+                before.setSuccessor(level, toRemoveNode.getSuccessor(level));
+                before.setWidth(level, before.getWidth(level) + toRemoveNode.getWidth(level) - 1);
+            } else {
+                before.setWidth(level, before.getWidth(level) - 1);
+            }
+        }
+
+        // Remove unnecessary upper level
+        while (maxLevel > 1 && start.getSuccessor(maxLevel - 1) == end) {
+            maxLevel--;
+        }
+
+        size--;
+        return toRemoveNode;
+    }
+
+    /**
+     * Find the Element
+     * If we find the node, then return true
+     * Else return false
+     */
+    @Override
+    public boolean findElementBoolean(Integer key) {
+        return findElement(key) != null;
+    }
+
+    /**
+     * Get the node with the k-th smallest key, k starts from 0
+     * so that select(rank(key)) is the node of the key
+     * If k is out of range, return null
+     */
+    public IndexableSkipListNode select(int k) {
+        if (k < 0 || k >= size) {
+            return null;
+        }
+        int target = k + 1;
+        IndexableSkipListNode node = start;
+        int position = 0;
+        for (int level = maxLevel - 1; level >= 0; level--) {
+            // Go right while not jumping over the target
+            while (position + node.getWidth(level) <= target) {
+                position += node.getWidth(level);
+                node = node.getSuccessor(level);
+            }
+            if (position == target) {
+                return node;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Get the number of keys < "key"
+     */
+    public int rank(int key) {
+        IndexableSkipListNode node = start;
+        int position = 0;
+        for (int level = maxLevel - 1; level >= 0; level--) {
+            // Go right
+            while (node.getSuccessor(level).getKey() < key) {
+                position += node.getWidth(level);
+                node = node.getSuccessor(level);
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Get the number of keys <= "key"
+     */
+    private int rankInclusive(int key) {
+        // Never go right onto "end"
+        if (key == IndexableSkipListNode.END) {
+            return size;
+        }
+        IndexableSkipListNode node = start;
+        int position = 0;
+        for (int level = maxLevel - 1; level >= 0; level--) {
+            // Go right
+            while (node.getSuccessor(level).getKey() <= key) {
+                position += node.getWidth(level);
+                node = node.getSuccessor(level);
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Get the number of keys in [lo, hi]
+     */
+    public int countBetween(int lo, int hi) {
+        if (lo > hi) {
+            return 0;
+        }
+        return rankInclusive(hi) - rank(lo);
+    }
+
+    /*
+     * Destroy the skip list
+     */
+    @Override
+    public void destroy() {
+        start = new IndexableSkipListNode(IndexableSkipListNode.START, null, 1);
+        start.setSuccessor(0, end);
+        start.setWidth(0, 1);
+        maxLevel = 1;
+        size = 0;
+    }
+
+    /**
+     * toString function helps print skip list
+     */
+    @Override
+    public String toString() {
+        if (getSize() == 0) {
+            return "THe skip list is empty.\n";
+        }
+
+        StringBuilder output = new StringBuilder();
+        for (int level = maxLevel - 1; level >= 0; level--) {
+            output.append("Level ").append(level + 1).append(": start-");
+            IndexableSkipListNode node = start.getSuccessor(level);
+            while (node.getKey() != IndexableSkipListNode.END) {
+                output.append(node.getKey()).append("-");
+                node = node.getSuccessor(level);
+            }
+            output.append("end\n");
+        }
+        return output.toString();
+    }
+}
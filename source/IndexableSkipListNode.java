@@ -0,0 +1,94 @@
+import java.util.Arrays;
+
+/**
+ * IndexableSkipListNode.java
+ * Implementing the indexable skip list node
+ * Besides the successor of every level, the node stores the width of every link,
+ * that is how many bottom level steps the link jumps over
+ */
+
+public class IndexableSkipListNode {
+    private int key;
+    private String value;
+    // successors[i] is the successor in level i + 1
+    private IndexableSkipListNode[] successors;
+    // widths[i] is the distance to successors[i] in the bottom level
+    private int[] widths;
+
+    public final static int START = Integer.MIN_VALUE;
+    public final static int END = Integer.MAX_VALUE;
+
+    /**
+     * Constructor
+     * Initialize the indexable skip list node with "height" levels
+     */
+    public IndexableSkipListNode(int key, String value, int height) {
+        this.key = key;
+        this.value = value;
+        this.successors = new IndexableSkipListNode[height];
+        this.widths = new int[height];
+    }
+
+    public int getKey() {
+        return key;
+    }
+
+    public void setKey(int key) {
+        this.key = key;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Get the number of levels the node lives in
+     */
+    public int getHeight() {
+        return successors.length;
+    }
+
+    /**
+     * Get the successor in level "level" (0 is the bottom level)
+     */
+    public IndexableSkipListNode getSuccessor(int level) {
+        return successors[level];
+    }
+
+    public void setSuccessor(int level, IndexableSkipListNode successor) {
+        successors[level] = successor;
+    }
+
+    /**
+     * Get the width of the link in level "level"
+     */
+    public int getWidth(int level) {
+        return widths[level];
+    }
+
+    public void setWidth(int level, int width) {
+        widths[level] = width;
+    }
+
+    /**
+     * Grow the node to "height" levels
+     */
+    public void grow(int height) {
+        if (height > successors.length) {
+            successors = Arrays.copyOf(successors, height);
+            widths = Arrays.copyOf(widths, height);
+        }
+    }
+
+    /**
+     * toString function helps print indexable skip list node
+     */
+    @Override
+    public String toString() {
+        return "key-value: " + key + "-" + value;
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * IntOrderedMap.java
+ * The primitive int-keyed version of CommonOperations
+ * Keys are compared as raw ints, so no Integer is boxed or unboxed on the way
+ */
+
+public interface IntOrderedMap<T> {
+
+    /**
+     * closestKeyAfter returns NO_KEY
+     * if there is no key after the "key"
+     */
+    int NO_KEY = Integer.MAX_VALUE;
+
+    /**
+     * Insert the key-value pair into
+     * the AVL tree or skip list
+     * Return the node
+     */
+    T insertElement(int key, String value);
+
+    /**
+     * Find the element whose key == "key"
+     * If the element exists, then return it
+     * Else return null
+     */
+    T findElement(int key);
+
+    /**
+     * Find the closest key after the "key"
+     * If it does not exist, return NO_KEY
+     */
+    int closestKeyAfter(int key);
+
+    /**
+     * Remove the node whose key == "key"
+     * and then return it
+     */
+    T removeElement(int key);
+
+    /**
+     * Find the element whose key == "key"
+     * If the element exists, then return true
+     * Else return false
+     */
+    boolean findElementBoolean(int key);
+
+    /**
+     * Find the closest node which key after the "key"
+     * If it does not exits, return null in AVL tree
+     *                       return "end" in skip list
+     */
+    T closestNodeAfter(int key);
+}
@@ -0,0 +1,134 @@
+import java.util.Arrays;
+
+/**
+ * LatencyHistogram.java
+ * Implementing a log-bucketed histogram of latencies in nanoseconds (like HdrHistogram)
+ * Values below SUB_BUCKETS are counted exactly. Above that, every power of 2 is split
+ * into SUB_BUCKETS / 2 linear sub-buckets, so a value is kept within 1 / 128 of itself
+ * for the whole range of long, in a fixed array of counts.
+ * record is O(1) and does not allocate, so it can be called in the timed loop.
+ */
+
+public class LatencyHistogram {
+    public final static double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+
+    private final static int SUB_BUCKET_BITS = 8;
+    private final static int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private final static int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    // The largest shift is for Long.MAX_VALUE
+    private final static int MAX_SHIFT = 62 - (SUB_BUCKET_BITS - 1);
+
+    private final long[] counts;
+    private long count;
+    private long sum;
+    private long min;
+    private long max;
+
+    /**
+     * Constructor
+     * Initialize an empty histogram
+     */
+    public LatencyHistogram() {
+        this.counts = new long[(MAX_SHIFT + 2) * HALF_SUB_BUCKETS];
+        reset();
+    }
+
+    /**
+     * Record a latency, a negative one is recorded as 0
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts[indexOf(value)]++;
+        count++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Add all the latencies of the other histogram
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMin() {
+        return (count == 0) ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return (count == 0) ? 0.0 : (double) sum / count;
+    }
+
+    /**
+     * Get the latency which "percentile" percent of the latencies are not above,
+     * it is the highest value of its bucket, but not above the max
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        double fraction = Math.min(Math.max(percentile, 0.0), 100.0) / 100.0;
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Get the bucket of the value
+     */
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        // value >>> shift is in [HALF_SUB_BUCKETS, SUB_BUCKETS)
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * Get the highest value of the bucket
+     */
+    private static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / HALF_SUB_BUCKETS - 1;
+        long lowest = (long) (index - shift * HALF_SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
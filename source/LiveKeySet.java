@@ -0,0 +1,159 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * LiveKeySet.java
+ * Implementing the set of live keys for generating workloads
+ * The keys are kept in a dense array (so a random key is one array read),
+ * and an open addressing hash table maps a key to its index in the dense array.
+ * add, remove, contains and random are O(1), without boxing.
+ * A removed key is replaced by the last key of the dense array.
+ */
+
+public class LiveKeySet {
+    private int[] keys; // the dense array of keys
+    private int size;
+    // table[slot] is the index of the key in "keys" plus 1, 0 for an empty slot
+    private int[] table;
+    private int mask;
+
+    /**
+     * Constructor
+     * Initialize the set with room for "capacity" keys
+     */
+    public LiveKeySet(int capacity) {
+        int slots = Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1) * 2;
+        keys = new int[Math.max(capacity, 8)];
+        table = new int[slots];
+        mask = slots - 1;
+        size = 0;
+    }
+
+    public LiveKeySet() {
+        this(16);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the i-th key of the dense array, 0 <= i < size
+     */
+    public int get(int i) {
+        return keys[i];
+    }
+
+    /**
+     * Get a uniformly random key
+     * The set must not be empty
+     */
+    public int random(Random random) {
+        return keys[random.nextInt(size)];
+    }
+
+    public boolean contains(int key) {
+        return table[slotOf(key)] != 0;
+    }
+
+    /**
+     * Add the key
+     * Return false if it has already existed
+     */
+    public boolean add(int key) {
+        int slot = slotOf(key);
+        if (table[slot] != 0) {
+            return false;
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, 2 * size);
+        }
+        keys[size] = key;
+        table[slot] = ++size;
+        // Keep the table at most half full
+        if (2 * size > table.length) {
+            rehash(2 * table.length);
+        }
+        return true;
+    }
+
+    /**
+     * Remove the key
+     * Return false if it does not exist
+     */
+    public boolean remove(int key) {
+        int slot = slotOf(key);
+        if (table[slot] == 0) {
+            return false;
+        }
+
+        // Move the last key of the dense array into the hole
+        int index = table[slot] - 1;
+        int last = size - 1;
+        if (index != last) {
+            int lastKey = keys[last];
+            int lastSlot = slotOf(lastKey);
+            keys[index] = lastKey;
+            table[lastSlot] = index + 1;
+        }
+        size--;
+
+        // Backward shift deletion: move the later keys of the probe sequence
+        // into the hole if the hole is between their home slot and their slot
+        int hole = slot;
+        int j = slot;
+        while (true) {
+            j = (j + 1) & mask;
+            if (table[j] == 0) {
+                break;
+            }
+            int home = hash(keys[table[j] - 1]) & mask;
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                table[hole] = table[j];
+                hole = j;
+            }
+        }
+        table[hole] = 0;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0);
+        size = 0;
+    }
+
+    /**
+     * Get the slot of the key, or the empty slot where it would be
+     */
+    private int slotOf(int key) {
+        int slot = hash(key) & mask;
+        while (table[slot] != 0 && keys[table[slot] - 1] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int slots) {
+        table = new int[slots];
+        mask = slots - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = hash(keys[i]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+    }
+
+    /**
+     * The finalizer of MurmurHash3, so nearby keys go to different slots
+     */
+    private static int hash(int key) {
+        key ^= key >>> 16;
+        key *= 0x85EBCA6B;
+        key ^= key >>> 13;
+        key *= 0xC2B2AE35;
+        key ^= key >>> 16;
+        return key;
+    }
+}
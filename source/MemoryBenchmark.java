@@ -0,0 +1,246 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Random;
+
+/**
+ * MemoryBenchmark.java
+ * Benchmark the memory of the AVL tree and the skip list
+ * Retained bytes per entry: the used heap after GC with the structures built minus
+ * the used heap after GC before building them. Small sizes build many structures,
+ * so every measurement holds about 2^20 entries. The fixed cost of a structure
+ * (its object and sentinels) is included, spread over its entries.
+ * All the values are the same empty string, so values are not counted.
+ * For the skip list, the nodes per entry include the upper level copies of the keys.
+ *
+ * Allocated bytes per call: the bytes allocated by this thread during the call, from
+ * com.sun.management.ThreadMXBean.getThreadAllocatedBytes, after warmup rounds
+ * so the JIT has compiled the calls. Every insertElement is followed by a removeElement
+ * of the same key, so the size stays the same. The calls are made through CommonOperations
+ * (boxing the key) and, if the structure is an IntOrderedMap, through its int overloads.
+ *
+ * Usage: java MemoryBenchmark [-structures AVLTree,SkipList] [-sizes 7-20]
+ *                             [-operations 100000] [-warmups 3]
+ * Sizes are exponents of 2.
+ */
+
+public class MemoryBenchmark {
+    private final static String VALUE = "";
+    private final static int ENTRIES_PER_MEASUREMENT = 1 << 20;
+    private final static int MAX_GC = 10;
+
+    // The blackhole, every measurement writes what it consumed into it
+    public static volatile int sink;
+
+    private final static com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Get the used heap after the garbage collection settles
+     */
+    public static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < MAX_GC; i++) {
+            System.gc();
+            long current = memory.getHeapMemoryUsage().getUsed();
+            if (current >= used) {
+                return used;
+            }
+            used = current;
+        }
+        return used;
+    }
+
+    /**
+     * Get the bytes allocated by this thread so far
+     */
+    public static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Build the structures with "size" entries each
+     * Return {retained bytes per entry, nodes per entry, upper level nodes per entry},
+     * the node counts are -1 if the structure cannot count its nodes
+     */
+    public static double[] retained(String name, int size) {
+        int instances = Math.max(1, ENTRIES_PER_MEASUREMENT / size);
+        CommonOperations[] structures = new CommonOperations[instances];
+
+        long before = usedHeap();
+        for (int i = 0; i < instances; i++) {
+            structures[i] = Benchmark.newStructure(name);
+            for (int j = 0; j < size; j++) {
+                structures[i].insertElement(Benchmark.key(j), VALUE);
+            }
+        }
+        long after = usedHeap();
+
+        double entries = (double) instances * size;
+        double nodes = -1;
+        double upperNodes = -1;
+        CommonOperations structure = structures[0];
+        if (structure instanceof SkipList) {
+            SkipList skipList = (SkipList) structure;
+            int count = skipList.getNodeCount();
+            nodes = (double) count / size;
+            // Every level has a start node and an end node
+            upperNodes = (double) (count - 2 * skipList.getMaxLevel() - size) / size;
+        } else if (structure instanceof AVLTree) {
+            nodes = 1;
+            upperNodes = 0;
+        }
+
+        // Keep the structures reachable until the heap is measured
+        int total = 0;
+        for (CommonOperations s : structures) {
+            total += s.getSize();
+        }
+        sink = total;
+        return new double[]{(after - before) / entries, nodes, upperNodes};
+    }
+
+    /**
+     * Measure the bytes allocated per insertElement, findElement and removeElement
+     * on a structure with "size" entries, with "operations" calls of each
+     * Return {insert, find, remove} through CommonOperations, then {insert, find, remove}
+     * through IntOrderedMap, which are -1 if the structure is not an IntOrderedMap
+     */
+    public static double[] allocated(String name, int size, int operations, int warmups) {
+        CommonOperations structure = Benchmark.newStructure(name);
+        for (int i = 0; i < size; i++) {
+            structure.insertElement(Benchmark.key(i), VALUE);
+        }
+        int[] insertKeys = new int[operations];
+        int[] findKeys = new int[operations];
+        Random random = new Random(size);
+        for (int i = 0; i < operations; i++) {
+            insertKeys[i] = Benchmark.key(size + random.nextInt(size));
+            findKeys[i] = Benchmark.key(random.nextInt(2 * size));
+        }
+
+        double[] bytes = new double[6];
+        for (int round = 0; round <= warmups; round++) {
+            measure(structure, null, insertKeys, findKeys, bytes, 0);
+        }
+        if (structure instanceof IntOrderedMap) {
+            for (int round = 0; round <= warmups; round++) {
+                measure(null, (IntOrderedMap) structure, insertKeys, findKeys, bytes, 3);
+            }
+        } else {
+            bytes[3] = -1;
+            bytes[4] = -1;
+            bytes[5] = -1;
+        }
+        return bytes;
+    }
+
+    /**
+     * One round through "structure" or "map",
+     * writing the bytes per call into bytes[offset..offset + 2]
+     */
+    private static void measure(CommonOperations structure, IntOrderedMap map, int[] insertKeys, int[] findKeys,
+                                double[] bytes, int offset) {
+        // The cost of reading the counter, if it allocates at all
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 16; i++) {
+            long start = allocatedBytes();
+            overhead = Math.min(overhead, allocatedBytes() - start);
+        }
+
+        long insertBytes = 0;
+        long removeBytes = 0;
+        int consumed = 0;
+        for (int key : insertKeys) {
+            long start = allocatedBytes();
+            Object inserted = (map != null) ? map.insertElement(key, VALUE) : structure.insertElement(key, VALUE);
+            long middle = allocatedBytes();
+            Object removed = (map != null) ? map.removeElement(key) : structure.removeElement(key);
+            long end = allocatedBytes();
+            insertBytes += middle - start - overhead;
+            removeBytes += end - middle - overhead;
+            consumed += ((inserted != null) ? 1 : 0) + ((removed != null) ? 1 : 0);
+        }
+
+        long start = allocatedBytes();
+        for (int key : findKeys) {
+            Object found = (map != null) ? map.findElement(key) : structure.findElement(key);
+            consumed += (found != null) ? 1 : 0;
+        }
+        long findBytes = allocatedBytes() - start - overhead;
+
+        bytes[offset] = (double) insertBytes / insertKeys.length;
+        bytes[offset + 1] = (double) findBytes / findKeys.length;
+        bytes[offset + 2] = (double) removeBytes / insertKeys.length;
+        sink = consumed;
+    }
+
+    private static String cell(double value, String format) {
+        return (value < 0) ? String.format("%" + format.replaceAll("\\.\\d+f", "s"), "-")
+                : String.format("%" + format, value);
+    }
+
+    public static void main(String[] args) {
+        String[] structures = {"AVLTree", "SkipList"};
+        int[] exponents = Benchmark.parseSizes("7-20");
+        int operations = 100_000;
+        int warmups = 3;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-structures": structures = args[i + 1].split(","); break;
+                case "-sizes": exponents = Benchmark.parseSizes(args[i + 1]); break;
+                case "-operations": operations = Integer.parseInt(args[i + 1]); break;
+                case "-warmups": warmups = Integer.parseInt(args[i + 1]); break;
+                default:
+                    System.out.println("Error: Unknown option: " + args[i]);
+                    return;
+            }
+        }
+        if (!THREADS.isThreadAllocatedMemorySupported()) {
+            System.out.println("Error: This JVM cannot count the allocated bytes of a thread");
+            return;
+        }
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+        for (String name : structures) {
+            try {
+                Benchmark.newStructure(name);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Error: " + e.getMessage());
+                return;
+            }
+        }
+
+        System.out.println("Retained memory per entry (used heap after GC)");
+        System.out.println("------------------------------------------------------------------");
+        System.out.println(String.format("|%-18s|%9s|%12s|%11s|%11s|", "Structure", "Size",
+                "Bytes/entry", "Nodes/entry", "Upper nodes"));
+        for (String name : structures) {
+            for (int exponent : exponents) {
+                double[] result = retained(name, 1 << exponent);
+                System.out.println(String.format("|%-18s|%9d|%12.1f|%s|%s|", name, 1 << exponent, result[0],
+                        cell(result[1], "11.3f"), cell(result[2], "11.3f")));
+            }
+        }
+        System.out.println("------------------------------------------------------------------");
+        System.out.println();
+
+        System.out.println("Allocated bytes per call (" + operations + " calls after " + warmups
+                + " warmup rounds, \"int\" is through IntOrderedMap)");
+        System.out.println("--------------------------------------------------------------"
+                + "-------------------------------------");
+        System.out.println(String.format("|%-18s|%9s|%8s|%8s|%8s|%12s|%12s|%12s|", "Structure", "Size",
+                "Insert", "Find", "Remove", "Insert(int)", "Find(int)", "Remove(int)"));
+        for (String name : structures) {
+            for (int exponent : exponents) {
+                double[] bytes = allocated(name, 1 << exponent, operations, warmups);
+                System.out.println(String.format("|%-18s|%9d|%s|%s|%s|%s|%s|%s|", name, 1 << exponent,
+                        cell(bytes[0], "8.1f"), cell(bytes[1], "8.1f"), cell(bytes[2], "8.1f"),
+                        cell(bytes[3], "12.1f"), cell(bytes[4], "12.1f"), cell(bytes[5], "12.1f")));
+            }
+        }
+        System.out.println("--------------------------------------------------------------"
+                + "-------------------------------------");
+        System.out.println();
+    }
+}
@@ -0,0 +1,401 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * OffHeapSkipList.java
+ * Implementing the skip list outside of the Java heap
+ * Nodes live in a direct ByteBuffer arena and refer to each other by int offsets,
+ * values are UTF-8 bytes in a second direct ByteBuffer.
+ * A node is addressed by its offset in the arena, so insertElement, findElement,
+ * closestNodeAfter and removeElement return offsets rather than node objects.
+ * Use getKey(node) and getValue(node) to read them.
+ *
+ * Node layout (in bytes):
+ * [0, 4)   key
+ * [4, 8)   height
+ * [8, 12)  offset of the value in the value region
+ * [12, 16) length of the value, -1 for null
+ * [16, 16 + 4 * height) successors, one for each level
+ */
+
+public class OffHeapSkipList implements CommonOperations {
+    public final static int START = Integer.MIN_VALUE;
+    public final static int END = Integer.MAX_VALUE;
+    public final static int MAX_LEVEL = 32;
+
+    private final static int NIL = -1;
+    private final static int KEY = 0;
+    private final static int HEIGHT = 4;
+    private final static int VALUE_OFFSET = 8;
+    private final static int VALUE_LENGTH = 12;
+    private final static int SUCCESSORS = 16;
+
+    private ByteBuffer nodes; // the node arena
+    private int nodesUsed; // the bytes used in the node arena
+    private int[] freeNodes; // freeNodes[h] is the first removed node of height h
+    private ByteBuffer values; // the value region
+    private int valuesUsed; // the bytes used in the value region
+    private int valuesGarbage; // the bytes of removed values in the value region
+
+    private int start;
+    private int end;
+    private int size; // the size of the skip list
+    private int maxLevel; // the maximum level
+    private int[] update; // update[i] is the last node before the key in level i + 1
+    private Random random;
+
+    /**
+     * Constructor
+     * Initialize the off-heap skip list
+     */
+    public OffHeapSkipList() {
+        this(1024);
+    }
+
+    /**
+     * Constructor
+     * Initialize the off-heap skip list with room for about "expectedSize" keys
+     */
+    public OffHeapSkipList(int expectedSize) {
+        random = new Random();
+        update = new int[MAX_LEVEL];
+        init(expectedSize);
+    }
+
+    private void init(int expectedSize) {
+        // A node has 2 levels on average
+        nodes = ByteBuffer.allocateDirect(nodeBytes(MAX_LEVEL) + nodeBytes(0) + expectedSize * nodeBytes(2))
+                .order(ByteOrder.nativeOrder());
+        values = ByteBuffer.allocateDirect(Math.max(expectedSize * 8, 64));
+        nodesUsed = 0;
+        valuesUsed = 0;
+        valuesGarbage = 0;
+        freeNodes = new int[MAX_LEVEL + 1];
+        Arrays.fill(freeNodes, NIL);
+
+        end = allocateNode(END, null, 0);
+        start = allocateNode(START, null, MAX_LEVEL);
+        for (int level = 0; level < MAX_LEVEL; level++) {
+            setSuccessor(start, level, end);
+        }
+        maxLevel = 1;
+        size = 0;
+    }
+
+    /**
+     * Get the size of the skip list
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the maximum level of the skip list
+     */
+    public int getMaxLevel() {
+        return maxLevel;
+    }
+
+    /**
+     * Get the key of the node at offset "node"
+     */
+    public int getKey(int node) {
+        return nodes.getInt(node + KEY);
+    }
+
+    /**
+     * Get the value of the node at offset "node"
+     */
+    public String getValue(int node) {
+        int length = nodes.getInt(node + VALUE_LENGTH);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        values.get(nodes.getInt(node + VALUE_OFFSET), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Insert the key-value pair into the skip list
+     * Return the offset of the node
+     */
+    @Override
+    public Integer insertElement(Integer key, String value) {
+        int k = key;
+        int height = Math.min(Integer.numberOfTrailingZeros(random.nextInt()) + 1, MAX_LEVEL);
+        int levels = Math.max(height, maxLevel);
+
+        int node = start;
+        for (int level = levels - 1; level >= 0; level--) {
+            // Go right
+            while (getKey(getSuccessor(node, level)) < k) {
+                node = getSuccessor(node, level);
+            }
+            update[level] = node;
+        }
+
+        // If the successor in the bottom level has the key,
+        // that means the key has already existed in the skip list
+        // Report the Error
+        if (getKey(getSuccessor(node, 0)) == k) {
+            System.out.println("Error: Insert replicated key: " + key);
+            return null;
+        }
+
+        // Link the new node after update[i] in every level it is promoted to
+        int newNode = allocateNode(k, value, height);
+        for (int level = 0; level < height; level++) {
+            setSuccessor(newNode, level, getSuccessor(update[level], level));
+            setSuccessor(update[level], level, newNode);
+        }
+
+        maxLevel = levels;
+        size++;
+        return newNode;
+    }
+
+    /**
+     * Find the element whose key == "key"
+     * If the element exists, then return its offset
+     * Else return null
+     */
+    @Override
+    public Integer findElement(Integer key) {
+        int node = findNode(key);
+        return node != NIL ? node : null;
+    }
+
+    private int findNode(int key) {
+        int node = start;
+        for (int level = maxLevel - 1; level >= 0; level--) {
+            // Go right
+            while (getKey(getSuccessor(node, level)) < key) {
+                node = getSuccessor(node, level);
+            }
+            // The node is the same one in every level,
+            // so we can return it as soon as we meet it
+            if (getKey(getSuccessor(node, level)) == key) {
+                return getSuccessor(node, level);
+            }
+        }
+        return NIL;
+    }
+
+    /**
+     * Find the node whose key is the closest key after the "key"
+     */
+    @Override
+    public Integer closestKeyAfter(Integer key) {
+        return getKey(closestNode(key));
+    }
+
+    /**
+     * Find the closest node which key after the "key"
+     * If it does not exits, return the offset of node "end"
+     */
+    @Override
+    public Integer closestNodeAfter(Integer key) {
+        return closestNode(key);
+    }
+
+    private int closestNode(int key) {
+        int node = start;
+        for (int level = maxLevel - 1; level >= 0; level--) {
+            // Go right
+            while (getKey(getSuccessor(node, level)) <= key) {
+                node = getSuccessor(node, level);
+            }
+        }
+        return getSuccessor(node, 0);
+    }
+
+    /**
+     * Remove the node whose key == "key"
+     * and then return its offset
+     * The removed node stays readable until the next insertElement
+     */
+    @Override
+    public Integer removeElement(Integer key) {
+        int k = key;
+        int node = start;
+        for (int level = maxLevel - 1; level >= 0; level--) {
+            // Go right
+            while (getKey(getSuccessor(node, level)) < k) {
+                node = getSuccessor(node, level);
+            }
+            update[level] = node;
+        }
+
+        // If the node does not exists, then return null
+        int toRemoveNode = getSuccessor(node, 0);
+        if (getKey(toRemoveNode) != k) {
+            return null;
+        }
+
+        // Unlink the node from every level it lives in
+        int height = nodes.getInt(toRemoveNode + HEIGHT);
+        for (int level = 0; level < height; level++) {
+            setSuccessor(update[level], level, getSuccessor(toRemoveNode, level));
+        }
+        freeNode(toRemoveNode);
+
+        // Remove unnecessary upper level
+        while (maxLevel > 1 && getSuccessor(start, maxLevel - 1) == end) {
+            maxLevel--;
+        }
+
+        size--;
+        return toRemoveNode;
+    }
+
+    /**
+     * Find the Element
+     * If we find the node, then return true
+     * Else return false
+     */
+    @Override
+    public boolean findElementBoolean(Integer key) {
+        return findNode(key) != NIL;
+    }
+
+    private int getSuccessor(int node, int level) {
+        return nodes.getInt(node + SUCCESSORS + 4 * level);
+    }
+
+    private void setSuccessor(int node, int level, int successor) {
+        nodes.putInt(node + SUCCESSORS + 4 * level, successor);
+    }
+
+    private static int nodeBytes(int height) {
+        return SUCCESSORS + 4 * height;
+    }
+
+    /**
+     * Take a node of "height" levels from the free list,
+     * or from the end of the arena if there is none
+     */
+    private int allocateNode(int key, String value, int height) {
+        int node = freeNodes[height];
+        if (node != NIL) {
+            // The successor in the bottom level links the free list
+            freeNodes[height] = getSuccessor(node, 0);
+        } else {
+            int bytes = nodeBytes(height);
+            if (nodesUsed + bytes > nodes.capacity()) {
+                nodes = grow(nodes, nodesUsed, nodesUsed + bytes);
+            }
+            node = nodesUsed;
+            nodesUsed += bytes;
+        }
+
+        nodes.putInt(node + KEY, key);
+        nodes.putInt(node + HEIGHT, height);
+        if (value == null) {
+            nodes.putInt(node + VALUE_OFFSET, 0);
+            nodes.putInt(node + VALUE_LENGTH, -1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            nodes.putInt(node + VALUE_OFFSET, storeValue(bytes));
+            nodes.putInt(node + VALUE_LENGTH, bytes.length);
+        }
+        return node;
+    }
+
+    /**
+     * Put the node back to the free list of its height
+     */
+    private void freeNode(int node) {
+        int height = nodes.getInt(node + HEIGHT);
+        int length = nodes.getInt(node + VALUE_LENGTH);
+        if (length > 0) {
+            valuesGarbage += length;
+        }
+        setSuccessor(node, 0, freeNodes[height]);
+        freeNodes[height] = node;
+    }
+
+    /**
+     * Append the bytes to the value region and return their offset
+     * If the region is full and mostly garbage, compact it instead of growing it
+     */
+    private int storeValue(byte[] bytes) {
+        if (valuesUsed + bytes.length > values.capacity()) {
+            if (valuesGarbage >= valuesUsed / 2) {
+                compactValues();
+            }
+            if (valuesUsed + bytes.length > values.capacity()) {
+                values = grow(values, valuesUsed, valuesUsed + bytes.length);
+            }
+        }
+        int offset = valuesUsed;
+        values.put(offset, bytes);
+        valuesUsed += bytes.length;
+        return offset;
+    }
+
+    /**
+     * Copy the values of the nodes in the bottom level into a new region,
+     * leaving the removed values behind
+     */
+    private void compactValues() {
+        ByteBuffer newValues = ByteBuffer.allocateDirect(values.capacity());
+        int used = 0;
+        for (int node = getSuccessor(start, 0); node != end; node = getSuccessor(node, 0)) {
+            int length = nodes.getInt(node + VALUE_LENGTH);
+            if (length > 0) {
+                newValues.put(used, values, nodes.getInt(node + VALUE_OFFSET), length);
+                nodes.putInt(node + VALUE_OFFSET, used);
+                used += length;
+            }
+        }
+        values = newValues;
+        valuesUsed = used;
+        valuesGarbage = 0;
+    }
+
+    /**
+     * Copy the first "used" bytes into a larger buffer holding at least "needed" bytes
+     */
+    private static ByteBuffer grow(ByteBuffer buffer, int used, int needed) {
+        int capacity = (int) Math.min(Math.max(2L * buffer.capacity(), needed), Integer.MAX_VALUE - 8);
+        if (capacity < needed) {
+            throw new OutOfMemoryError("Off-heap skip list arena is full");
+        }
+        ByteBuffer newBuffer = ByteBuffer.allocateDirect(capacity).order(buffer.order());
+        newBuffer.put(0, buffer, 0, used);
+        return newBuffer;
+    }
+
+    /*
+     * Destroy the skip list
+     */
+    @Override
+    public void destroy() {
+        init(0);
+    }
+
+    /**
+     * toString function helps print skip list
+     */
+    @Override
+    public String toString() {
+        if (getSize() == 0) {
+            return "THe skip list is empty.\n";
+        }
+
+        StringBuilder output = new StringBuilder();
+        for (int level = maxLevel - 1; level >= 0; level--) {
+            output.append("Level ").append(level + 1).append(": start-");
+            for (int node = getSuccessor(start, level); node != end; node = getSuccessor(node, level)) {
+                output.append(getKey(node)).append("-");
+            }
+            output.append("end\n");
+        }
+        return output.toString();
+    }
+}
@@ -1,3 +1,6 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.*;
 
 /**
@@ -12,7 +15,8 @@ public class PerformanceTest {
     private int min = 1;
     private int max = 1_000_000;
     private int times = 100_000; // 100_000
-    private List<Integer> arr;
+    private long seed = 20180425L;
+    private int distribution;
 
     private Map<Integer, Integer> avlInsertElementArr;
     private Map<Integer, Integer> avlFindElementArr;
@@ -24,8 +28,21 @@ public class PerformanceTest {
     private Map<Integer, Integer> skipClosestKeyAfterArr;
     private Map<Integer, Integer> skipRemoveElementArr;
 
+    // The latencies of every size, indexed by Workload.INSERT, FIND, CLOSEST_KEY_AFTER and REMOVE
+    public final static String[] OPERATIONS = {"insertElement", "findElement", "closestKeyAfter", "removeElement"};
+    private Map<Integer, LatencyHistogram[]> avlHistograms;
+    private Map<Integer, LatencyHistogram[]> skipHistograms;
+
     public PerformanceTest() {
-        this.arr = new ArrayList<>();
+        this(Workload.UNIFORM);
+    }
+
+    /**
+     * Constructor
+     * Test with the key distribution of Workload
+     */
+    public PerformanceTest(int distribution) {
+        this.distribution = distribution;
         this.avlInsertElementArr = new TreeMap<>();
         this.avlFindElementArr = new TreeMap<>();
         this.avlClosestKeyAfterArr = new TreeMap<>();
@@ -34,6 +51,8 @@ public class PerformanceTest {
         this.skipFindElementArr = new TreeMap<>();
         this.skipClosestKeyAfterArr = new TreeMap<>();
         this.skipRemoveElementArr = new TreeMap<>();
+        this.avlHistograms = new TreeMap<>();
+        this.skipHistograms = new TreeMap<>();
     }
 
     public Map<Integer, Integer> getAvlInsertElementArr() {
@@ -68,141 +87,245 @@ public class PerformanceTest {
         return skipRemoveElementArr;
     }
 
-    private int randomKey(int min, int max) {
-        Random random = new Random();
-        int key = random.nextInt((max - min) + 1) + min;
+    public Map<Integer, LatencyHistogram[]> getAvlHistograms() {
+        return avlHistograms;
+    }
 
-        return key;
+    public Map<Integer, LatencyHistogram[]> getSkipHistograms() {
+        return skipHistograms;
+    }
+
+    private static LatencyHistogram[] newHistograms() {
+        LatencyHistogram[] histograms = new LatencyHistogram[OPERATIONS.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
     }
 
     public void calculate() {
         AVLTree avlTree = new AVLTree();
         SkipList skipList = new SkipList();
-        long avlInsertTime = 0L;
-        long avlFindTime = 0L;
-        long avlClosestKeyAfterTime = 0L;
-        long avlRemoveTime = 0L;
-        long skipInsertTime = 0L;
-        long skipFindTime = 0L;
-        long skipClosestKeyAfterTime = 0L;
-        long skipRemoveTime = 0L;
         int key;
         String value;
         long start;
         long end;
 
+        // The same seed generates the same keys in every run
+        Workload workload = new Workload(distribution, min, max, seed);
+        value = "";
+
         for (int mSize : size) {
-            while (avlTree.getSize() < Math.pow(2, mSize) - 1) {
-                key = randomKey(1, max);
-                if (!arr.contains(key)) {
-                    value = "";
-                    avlTree.insertElement(key, value);
-                    skipList.insertElement(key, value);
-                    arr.add(key);
-                }
+            for (int loadKey : workload.load((1 << mSize) - 1 - avlTree.getSize())) {
+                avlTree.insertElement(loadKey, value);
+                skipList.insertElement(loadKey, value);
             }
 
-            int n = 0;
-            while (n < times) {
-                // Test removeElement
-                while (true) {
-                    key = randomKey(min, max);
-                    if (!arr.contains(key)) {
-                        value = "";
-
-                        start = System.nanoTime();
-                        avlTree.insertElement(key, value);
-                        end = System.nanoTime();
-                        avlInsertTime += end - start;
-
-                        start = System.nanoTime();
-                        skipList.insertElement(key, value);
-                        end = System.nanoTime();
-                        skipInsertTime += end - start;
+            // Generate the keys of all the rounds before timing
+            workload.generateRounds(times);
+            int[] keys = workload.getKeys();
+            LatencyHistogram[] avl = newHistograms();
+            LatencyHistogram[] skip = newHistograms();
 
-                        arr.add(key);
+            for (int n = 0; n < times; n++) {
+                // Test insertElement
+                key = keys[4 * n];
+                start = System.nanoTime();
+                avlTree.insertElement(key, value);
+                end = System.nanoTime();
+                avl[Workload.INSERT].record(end - start);
 
-                        break;
-                    }
-                }
+                start = System.nanoTime();
+                skipList.insertElement(key, value);
+                end = System.nanoTime();
+                skip[Workload.INSERT].record(end - start);
 
                 // Test findElement
-                key = randomKey(min, max);
+                key = keys[4 * n + 1];
                 start = System.nanoTime();
                 avlTree.findElement(key);
                 end = System.nanoTime();
-                avlFindTime += end - start;
+                avl[Workload.FIND].record(end - start);
 
                 start = System.nanoTime();
                 skipList.findElement(key);
                 end = System.nanoTime();
-                skipFindTime += end - start;
+                skip[Workload.FIND].record(end - start);
 
                 // Test closestKeyAfter
-                key = randomKey(min, max);
+                key = keys[4 * n + 2];
                 start = System.nanoTime();
                 avlTree.closestKeyAfter(key);
                 end = System.nanoTime();
-                avlClosestKeyAfterTime += end - start;
+                avl[Workload.CLOSEST_KEY_AFTER].record(end - start);
 
                 start = System.nanoTime();
                 skipList.closestKeyAfter(key);
                 end = System.nanoTime();
-                skipClosestKeyAfterTime += end - start;
+                skip[Workload.CLOSEST_KEY_AFTER].record(end - start);
 
                 // Test removeElement
-                key = arr.get(randomKey(0, arr.size() - 1));
+                key = keys[4 * n + 3];
                 start = System.nanoTime();
                 avlTree.removeElement(key);
                 end = System.nanoTime();
 
-                avlRemoveTime += end - start;
+                avl[Workload.REMOVE].record(end - start);
 
                 start = System.nanoTime();
                 skipList.removeElement(key);
                 end = System.nanoTime();
-                skipRemoveTime += end - start;
+                skip[Workload.REMOVE].record(end - start);
+            }
+
+            // Get the average time
+            avlInsertElementArr.put(mSize, (int) avl[Workload.INSERT].getMean());
+            avlFindElementArr.put(mSize, (int) avl[Workload.FIND].getMean());
+            avlClosestKeyAfterArr.put(mSize, (int) avl[Workload.CLOSEST_KEY_AFTER].getMean());
+            avlRemoveElementArr.put(mSize, (int) avl[Workload.REMOVE].getMean());
+
+            skipInsertElementArr.put(mSize, (int) skip[Workload.INSERT].getMean());
+            skipFindElementArr.put(mSize, (int) skip[Workload.FIND].getMean());
+            skipClosestKeyAfterArr.put(mSize, (int) skip[Workload.CLOSEST_KEY_AFTER].getMean());
+            skipRemoveElementArr.put(mSize, (int) skip[Workload.REMOVE].getMean());
+
+            avlHistograms.put(mSize, avl);
+            skipHistograms.put(mSize, skip);
+        }
+    }
+
+    /**
+     * Write the latencies of every structure, operation and size as CSV
+     * Return false if the file cannot be written
+     */
+    public boolean writeCsv(String fileName) {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(fileName))) {
+            writer.println("structure,operation,logSize,size,count,meanNs,minNs,p50Ns,p90Ns,p99Ns,p99.9Ns,maxNs");
+            writeCsv(writer, "AVLTree", avlHistograms);
+            writeCsv(writer, "SkipList", skipHistograms);
+        } catch (IOException e) {
+            System.out.println("Error: Cannot write " + fileName + ": " + e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    private void writeCsv(PrintWriter writer, String structure, Map<Integer, LatencyHistogram[]> histograms) {
+        for (Map.Entry<Integer, LatencyHistogram[]> m : histograms.entrySet()) {
+            for (int i = 0; i < OPERATIONS.length; i++) {
+                LatencyHistogram histogram = m.getValue()[i];
+                StringBuilder row = new StringBuilder();
+                row.append(structure).append(',').append(OPERATIONS[i]).append(',').append(m.getKey())
+                        .append(',').append(1 << m.getKey()).append(',').append(histogram.getCount())
+                        .append(',').append(String.format(Locale.ROOT, "%.1f", histogram.getMean()))
+                        .append(',').append(histogram.getMin());
+                for (double percentile : LatencyHistogram.PERCENTILES) {
+                    row.append(',').append(histogram.getValueAtPercentile(percentile));
+                }
+                row.append(',').append(histogram.getMax());
+                writer.println(row);
+            }
+        }
+    }
 
-                arr.remove((Integer) key);
+    /**
+     * Write the test condition and the latencies of every structure, operation and size as JSON
+     * Return false if the file cannot be written
+     */
+    public boolean writeJson(String fileName) {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(fileName))) {
+            writer.println("{");
+            writer.println("  \"distribution\": \"" + Workload.DISTRIBUTIONS[distribution] + "\",");
+            writer.println("  \"minKey\": " + min + ",");
+            writer.println("  \"maxKey\": " + max + ",");
+            writer.println("  \"times\": " + times + ",");
+            writer.println("  \"seed\": " + seed + ",");
+            writer.println("  \"results\": [");
+            boolean first = writeJson(writer, "AVLTree", avlHistograms, true);
+            writeJson(writer, "SkipList", skipHistograms, first);
+            writer.println();
+            writer.println("  ]");
+            writer.println("}");
+        } catch (IOException e) {
+            System.out.println("Error: Cannot write " + fileName + ": " + e.getMessage());
+            return false;
+        }
+        return true;
+    }
 
-                n++;
+    /**
+     * Return whether nothing has been written yet
+     */
+    private boolean writeJson(PrintWriter writer, String structure, Map<Integer, LatencyHistogram[]> histograms,
+                              boolean first) {
+        for (Map.Entry<Integer, LatencyHistogram[]> m : histograms.entrySet()) {
+            for (int i = 0; i < OPERATIONS.length; i++) {
+                LatencyHistogram histogram = m.getValue()[i];
+                if (!first) {
+                    writer.println(",");
+                }
+                first = false;
+                StringBuilder row = new StringBuilder();
+                row.append("    {\"structure\": \"").append(structure)
+                        .append("\", \"operation\": \"").append(OPERATIONS[i])
+                        .append("\", \"logSize\": ").append(m.getKey())
+                        .append(", \"size\": ").append(1 << m.getKey())
+                        .append(", \"count\": ").append(histogram.getCount())
+                        .append(", \"meanNs\": ").append(String.format(Locale.ROOT, "%.1f", histogram.getMean()))
+                        .append(", \"minNs\": ").append(histogram.getMin());
+                for (double percentile : LatencyHistogram.PERCENTILES) {
+                    row.append(", \"p").append(percentileName(percentile)).append("Ns\": ")
+                            .append(histogram.getValueAtPercentile(percentile));
+                }
+                row.append(", \"maxNs\": ").append(histogram.getMax()).append("}");
+                writer.print(row);
             }
+        }
+        return first;
+    }
 
-            // Get the average time
-            avlInsertTime /= times;
-            avlFindTime /= times;
-            avlClosestKeyAfterTime /= times;
-            avlRemoveTime /= times;
-
-            skipInsertTime /= times;
-            skipFindTime /= times;
-            skipClosestKeyAfterTime /= times;
-            skipRemoveTime /= times;
-
-            avlInsertElementArr.put(mSize, (int) avlInsertTime);
-            avlFindElementArr.put(mSize, (int) avlFindTime);
-            avlClosestKeyAfterArr.put(mSize, (int) avlClosestKeyAfterTime);
-            avlRemoveElementArr.put(mSize, (int) avlRemoveTime);
-
-            skipInsertElementArr.put(mSize, (int) skipInsertTime);
-            skipFindElementArr.put(mSize, (int) skipFindTime);
-            skipClosestKeyAfterArr.put(mSize, (int) skipClosestKeyAfterTime);
-            skipRemoveElementArr.put(mSize, (int) skipRemoveTime);
-
-            avlInsertTime = 0L;
-            avlFindTime = 0L;
-            avlClosestKeyAfterTime = 0L;
-            avlRemoveTime = 0L;
-
-            skipInsertTime = 0L;
-            skipFindTime = 0L;
-            skipClosestKeyAfterTime = 0L;
-            skipRemoveTime = 0L;
+    /**
+     * 50.0 -> "50", 99.9 -> "99.9"
+     */
+    private static String percentileName(double percentile) {
+        return (percentile == Math.rint(percentile)) ? String.valueOf((int) percentile) : String.valueOf(percentile);
+    }
+
+    /**
+     * Print the percentiles of the latencies of every operation and size
+     */
+    private static void printPercentiles(String structure, Map<Integer, LatencyHistogram[]> histograms) {
+        String[] names = {"Insert", "Find", "Closest", "Remove"};
+        StringBuilder line = new StringBuilder("---------------");
+        for (int i = 0; i < histograms.size(); i++) {
+            line.append("---------");
         }
+        System.out.println(structure + " latency percentiles (ns)");
+        System.out.println(line);
+        StringBuilder row = new StringBuilder("|size         |");
+        for (int mSize : histograms.keySet()) {
+            row.append(String.format("%8d|", 1 << mSize));
+        }
+        System.out.println(row);
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            for (int p = 0; p <= LatencyHistogram.PERCENTILES.length; p++) {
+                String label = names[i] + " " + ((p < LatencyHistogram.PERCENTILES.length)
+                        ? "p" + percentileName(LatencyHistogram.PERCENTILES[p]) : "max");
+                row = new StringBuilder(String.format("|%-13s|", label));
+                for (LatencyHistogram[] h : histograms.values()) {
+                    long value = (p < LatencyHistogram.PERCENTILES.length)
+                            ? h[i].getValueAtPercentile(LatencyHistogram.PERCENTILES[p]) : h[i].getMax();
+                    row.append(String.format("%8d|", value));
+                }
+                System.out.println(row);
+            }
+        }
+        System.out.println(line);
+        System.out.println();
     }
 
     public static void main(String[] args) {
-        System.out.println("\nThis program may take you 5 minutes to get the result.\n");
+        System.out.println("\nThis program may take you a minute to get the result.\n");
         Map<Integer, Integer> avlInsertElementArr;
         Map<Integer, Integer> avlFindElementArr;
         Map<Integer, Integer> avlClosestKeyAfterArr;
@@ -213,7 +336,27 @@ public class PerformanceTest {
         Map<Integer, Integer> skipClosestKeyAfterArr;
         Map<Integer, Integer> skipRemoveElementArr;
 
-        PerformanceTest test = new PerformanceTest();
+        // The key distribution, uniform by default, and the files to export the latencies to
+        int distribution = Workload.UNIFORM;
+        String csvFile = null;
+        String jsonFile = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-csv") && i + 1 < args.length) {
+                csvFile = args[++i];
+            } else if (args[i].equals("-json") && i + 1 < args.length) {
+                jsonFile = args[++i];
+            } else {
+                try {
+                    distribution = Workload.parseDistribution(args[i]);
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Error: " + e.getMessage() + ", use one of "
+                            + String.join(", ", Workload.DISTRIBUTIONS) + " [-csv file] [-json file]");
+                    return;
+                }
+            }
+        }
+
+        PerformanceTest test = new PerformanceTest(distribution);
         test.calculate();
 
         avlInsertElementArr = test.getAvlInsertElementArr();
@@ -228,6 +371,7 @@ public class PerformanceTest {
 
         System.out.println("Test condition:");
         System.out.println("Key range: (1, 1_000_000)\n" +
+                "Key distribution: " + Workload.DISTRIBUTIONS[distribution] + "\n" +
                 "Number of times: 100_000 for every size\n");
 
         System.out.println("AVL Tree performance");
@@ -361,5 +505,15 @@ public class PerformanceTest {
         System.out.println("---------------------------------------"
                 + "--------------------------------------------");
         System.out.println();
+
+        printPercentiles("AVL Tree", test.getAvlHistograms());
+        printPercentiles("Skip List", test.getSkipHistograms());
+
+        if (csvFile != null && test.writeCsv(csvFile)) {
+            System.out.println("The latencies are written to " + csvFile);
+        }
+        if (jsonFile != null && test.writeJson(jsonFile)) {
+            System.out.println("The latencies are written to " + jsonFile);
+        }
     }
 }
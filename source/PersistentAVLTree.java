@@ -0,0 +1,380 @@
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * PersistentAVLTree.java
+ * Implementing the persistent (copy-on-write) AVL tree
+ * A published node is never modified again. insertElement and removeElement
+ * copy the nodes on the search path (and the ones they rotate), share all
+ * the other subtrees with the old tree, and publish the new root with a CAS.
+ * So a reader gets a consistent tree with one volatile read of the root,
+ * never blocks, and never sees a partial rotation.
+ * Writers retry when another writer published a new root in between.
+ */
+
+public class PersistentAVLTree implements CommonOperations, IntOrderedMap {
+
+    private final AtomicReference<AVLTreeNode> root;
+
+    /**
+     * Constructor
+     * Initialize the persistent AVL tree
+     */
+    public PersistentAVLTree() {
+        this(null);
+    }
+
+    private PersistentAVLTree(AVLTreeNode root) {
+        this.root = new AtomicReference<>(root);
+    }
+
+    /**
+     * Get the current root
+     * The tree under it never changes, so it can be read without locking
+     */
+    public AVLTreeNode getRoot() {
+        return root.get();
+    }
+
+    /**
+     * Get a snapshot of the current tree in O(1)
+     * The snapshot shares all the nodes with this tree,
+     * and later updates of either one do not affect the other
+     */
+    public PersistentAVLTree snapshot() {
+        return new PersistentAVLTree(root.get());
+    }
+
+    private static int getHeight(AVLTreeNode node) {
+        return (node != null) ? node.getHeight() : 0;
+    }
+
+    private static int getSize(AVLTreeNode node) {
+        return (node != null) ? node.getSize() : 0;
+    }
+
+    /**
+     * Get the height of the AVL tree
+     */
+    public int getHeight() {
+        return getHeight(root.get());
+    }
+
+    /**
+     * Get the size of the AVL tree
+     */
+    @Override
+    public int getSize() {
+        return getSize(root.get());
+    }
+
+    /**
+     * Find the node whose key equals to "key"
+     * If the node exists, then return the node
+     * Else return null
+     */
+    @Override
+    public AVLTreeNode findElement(Integer key) {
+        return findElement(key.intValue());
+    }
+
+    @Override
+    public AVLTreeNode findElement(int key) {
+        AVLTreeNode node = root.get();
+        while (node != null && node.getKey() != key) {
+            node = (key < node.getKey()) ? node.getLeftChild() : node.getRightChild();
+        }
+        return node;
+    }
+
+    /**
+     * Find the node whose key equals to "key"
+     * If the node exists, then return true
+     * Else return false
+     */
+    @Override
+    public boolean findElementBoolean(Integer key) {
+        return findElement(key.intValue()) != null;
+    }
+
+    @Override
+    public boolean findElementBoolean(int key) {
+        return findElement(key) != null;
+    }
+
+    /**
+     * Find the closest key after the "key"
+     * If it does not exits, return NO_KEY;
+     */
+    @Override
+    public Integer closestKeyAfter(Integer key) {
+        return closestKeyAfter(key.intValue());
+    }
+
+    @Override
+    public int closestKeyAfter(int key) {
+        AVLTreeNode CNA = closestNodeAfter(key);
+        return (CNA != null) ? CNA.getKey() : NO_KEY;
+    }
+
+    /**
+     * Find the closest node which key after the "key"
+     * If it does not exits, return null;
+     */
+    @Override
+    public AVLTreeNode closestNodeAfter(Integer key) {
+        return closestNodeAfter(key.intValue());
+    }
+
+    @Override
+    public AVLTreeNode closestNodeAfter(int key) {
+        // CNA records the smallest node > key met on the way down
+        AVLTreeNode CNA = null;
+        AVLTreeNode node = root.get();
+        while (node != null) {
+            if (key < node.getKey()) {
+                CNA = node;
+                node = node.getLeftChild();
+            } else {
+                node = node.getRightChild();
+            }
+        }
+        return CNA;
+    }
+
+    /**
+     * Insert the key-value pair into the AVL tree
+     * Return the new node
+     */
+    @Override
+    public AVLTreeNode insertElement(Integer key, String value) {
+        return insertElement(key.intValue(), value);
+    }
+
+    @Override
+    public AVLTreeNode insertElement(int key, String value) {
+        // created[0] receives the new node
+        AVLTreeNode[] created = new AVLTreeNode[1];
+        while (true) {
+            AVLTreeNode oldRoot = root.get();
+            AVLTreeNode newRoot = insert(oldRoot, key, value, created);
+            // If nothing was copied, that means the key
+            // has already existed in the AVL tree
+            // Report the Error
+            if (newRoot == oldRoot) {
+                System.out.println("Error: Insert replicated key: " + key);
+                return null;
+            }
+            if (root.compareAndSet(oldRoot, newRoot)) {
+                return created[0];
+            }
+        }
+    }
+
+    /**
+     * Return the root of a copy of the subtree with the key-value pair inserted
+     * If the key has already existed, return the subtree itself
+     */
+    private static AVLTreeNode insert(AVLTreeNode node, int key, String value, AVLTreeNode[] created) {
+        if (node == null) {
+            created[0] = newNode(key, value, null, null);
+            return created[0];
+        }
+        if (key < node.getKey()) {
+            AVLTreeNode left = insert(node.getLeftChild(), key, value, created);
+            if (left == node.getLeftChild()) {
+                return node;
+            }
+            return balance(node.getKey(), node.getValue(), left, node.getRightChild());
+        } else if (key > node.getKey()) {
+            AVLTreeNode right = insert(node.getRightChild(), key, value, created);
+            if (right == node.getRightChild()) {
+                return node;
+            }
+            return balance(node.getKey(), node.getValue(), node.getLeftChild(), right);
+        } else {
+            return node;
+        }
+    }
+
+    /**
+     * Remove the node whose key == "key"
+     * and then return it
+     * The returned node still belongs to the older snapshots,
+     * so it keeps its children
+     */
+    @Override
+    public AVLTreeNode removeElement(Integer key) {
+        return removeElement(key.intValue());
+    }
+
+    @Override
+    public AVLTreeNode removeElement(int key) {
+        // removed[0] receives the removed node
+        AVLTreeNode[] removed = new AVLTreeNode[1];
+        while (true) {
+            AVLTreeNode oldRoot = root.get();
+            AVLTreeNode newRoot = remove(oldRoot, key, removed);
+            // If nothing was copied, then the node does not exist
+            if (newRoot == oldRoot) {
+                return null;
+            }
+            if (root.compareAndSet(oldRoot, newRoot)) {
+                return removed[0];
+            }
+        }
+    }
+
+    /**
+     * Return the root of a copy of the subtree with the key removed
+     * If the key does not exist, return the subtree itself
+     */
+    private static AVLTreeNode remove(AVLTreeNode node, int key, AVLTreeNode[] removed) {
+        if (node == null) {
+            return null;
+        }
+        if (key < node.getKey()) {
+            AVLTreeNode left = remove(node.getLeftChild(), key, removed);
+            if (left == node.getLeftChild()) {
+                return node;
+            }
+            return balance(node.getKey(), node.getValue(), left, node.getRightChild());
+        } else if (key > node.getKey()) {
+            AVLTreeNode right = remove(node.getRightChild(), key, removed);
+            if (right == node.getRightChild()) {
+                return node;
+            }
+            return balance(node.getKey(), node.getValue(), node.getLeftChild(), right);
+        }
+
+        removed[0] = node;
+        AVLTreeNode left = node.getLeftChild();
+        AVLTreeNode right = node.getRightChild();
+        // If the to be deleted node has only one child or no children,
+        // then replace it with its child (or null), which is shared as it is
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        // If the to be deleted node has two children,
+        // then copy the closest node of its higher subtree into its place
+        if (getHeight(left) > getHeight(right)) {
+            AVLTreeNode replacement = maximumNode(left);
+            return balance(replacement.getKey(), replacement.getValue(),
+                    remove(left, replacement.getKey(), new AVLTreeNode[1]), right);
+        } else {
+            AVLTreeNode replacement = minimumNode(right);
+            return balance(replacement.getKey(), replacement.getValue(),
+                    left, remove(right, replacement.getKey(), new AVLTreeNode[1]));
+        }
+    }
+
+    /**
+     * Build a new node over the subtrees "left" and "right",
+     * whose heights differ by at most 2, rotating if necessary
+     * Return the new root of the subtree
+     */
+    private static AVLTreeNode balance(int key, String value, AVLTreeNode left, AVLTreeNode right) {
+        // If the left subtree is higher
+        if (getHeight(left) - getHeight(right) == 2) {
+            // Single right rotation
+            if (getHeight(left.getLeftChild()) >= getHeight(left.getRightChild())) {
+                return newNode(left.getKey(), left.getValue(), left.getLeftChild(),
+                        newNode(key, value, left.getRightChild(), right));
+            }
+            // Left right rotation
+            AVLTreeNode middle = left.getRightChild();
+            return newNode(middle.getKey(), middle.getValue(),
+                    newNode(left.getKey(), left.getValue(), left.getLeftChild(), middle.getLeftChild()),
+                    newNode(key, value, middle.getRightChild(), right));
+        }
+
+        // If the right subtree is higher
+        if (getHeight(right) - getHeight(left) == 2) {
+            // Single left rotation
+            if (getHeight(right.getRightChild()) >= getHeight(right.getLeftChild())) {
+                return newNode(right.getKey(), right.getValue(),
+                        newNode(key, value, left, right.getLeftChild()), right.getRightChild());
+            }
+            // Right left rotation
+            AVLTreeNode middle = right.getLeftChild();
+            return newNode(middle.getKey(), middle.getValue(),
+                    newNode(key, value, left, middle.getLeftChild()),
+                    newNode(right.getKey(), right.getValue(), middle.getRightChild(), right.getRightChild()));
+        }
+
+        return newNode(key, value, left, right);
+    }
+
+    /**
+     * Create a node with its height and size computed from its children
+     */
+    private static AVLTreeNode newNode(int key, String value, AVLTreeNode left, AVLTreeNode right) {
+        AVLTreeNode node = new AVLTreeNode(key, value, left, right);
+        node.setHeight(Math.max(getHeight(left), getHeight(right)) + 1);
+        return node;
+    }
+
+    /*
+     * Get the node with the minimum key of the subtree
+     */
+    private static AVLTreeNode minimumNode(AVLTreeNode node) {
+        while (node.getLeftChild() != null) {
+            node = node.getLeftChild();
+        }
+        return node;
+    }
+
+    /*
+     * Get the node with the maximum key of the subtree
+     */
+    private static AVLTreeNode maximumNode(AVLTreeNode node) {
+        while (node.getRightChild() != null) {
+            node = node.getRightChild();
+        }
+        return node;
+    }
+
+    /*
+     * Destroy the AVL tree
+     * The snapshots taken before are not affected
+     */
+    @Override
+    public void destroy() {
+        root.set(null);
+    }
+
+    /**
+     * toString function helps print the AVL tree
+     */
+    @Override
+    public String toString() {
+        AVLTreeNode node = root.get();
+        // If the AVL tree is empty
+        if (node == null) {
+            return "The AVL tree is empty.";
+        }
+
+        StringBuilder output = new StringBuilder();
+        output.append(node.getKey()).append(" is root.\n");
+        AVLTreeNode[] queue = new AVLTreeNode[node.getSize()];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = node;
+        while (head < tail) {
+            node = queue[head++];
+            if (node.getLeftChild() != null) {
+                queue[tail++] = node.getLeftChild();
+                output.append(node.getLeftChild().getKey()).append(" is ")
+                        .append(node.getKey()).append("'s left child.\n");
+            }
+            if (node.getRightChild() != null) {
+                queue[tail++] = node.getRightChild();
+                output.append(node.getRightChild().getKey()).append(" is ")
+                        .append(node.getKey()).append("'s right child.\n");
+            }
+        }
+        return output.toString();
+    }
+}
@@ -1,4 +1,10 @@
-import java.util.Random;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * SkipList.java
@@ -7,25 +13,58 @@ import java.util.Random;
  * 04/11/2018
  */
 
-public class SkipList implements CommonOperations {
+public class SkipList implements CommonOperations, IntOrderedMap {
     private SkipListNode start;
     private SkipListNode end;
     private int size; // the size of the skip list
     private int maxLevel; // the maximum level
-    private Random random;
+    private final double probability; // the probability of promoting a node to the upper level
+    private final int maxLevelCap; // the maximum level can not exceed it
+    // If probability == 1 / 2^promotionShift, a level costs promotionShift random bits
+    // Else promotionShift == 0, and the levels follow the geometric distribution
+    private final int promotionShift;
+    private final double logProbability;
+
+    public final static double DEFAULT_PROBABILITY = 0.5;
+    public final static int DEFAULT_MAX_LEVEL_CAP = 32;
 
     /**
      * Constructor
      * Initialize the skip list
      */
     public SkipList() {
+        this(DEFAULT_PROBABILITY, DEFAULT_MAX_LEVEL_CAP);
+    }
+
+    /**
+     * Constructor
+     * Initialize the skip list, promoting a node to the upper level
+     * with "probability" (e.g. 1/2, 1/4, 1/e) and never going above "maxLevelCap" levels
+     * A smaller probability means fewer upper level nodes but longer searches in each level
+     */
+    public SkipList(double probability, int maxLevelCap) {
+        if (!(probability > 0 && probability < 1)) {
+            throw new IllegalArgumentException("Probability should be in (0, 1): " + probability);
+        }
+        if (maxLevelCap < 1) {
+            throw new IllegalArgumentException("Max level cap should be positive: " + maxLevelCap);
+        }
+
         start = new SkipListNode(SkipListNode.START, null);
         end = new SkipListNode(SkipListNode.END, null);
         linkHorizontal(start, end);
         maxLevel = 1;
         size = 0;
 
-        random = new Random();
+        this.probability = probability;
+        this.maxLevelCap = maxLevelCap;
+        long inverse = Math.round(1 / probability);
+        if (Long.bitCount(inverse) == 1 && 1.0 / inverse == probability) {
+            promotionShift = Long.numberOfTrailingZeros(inverse);
+        } else {
+            promotionShift = 0;
+        }
+        logProbability = Math.log(probability);
     }
 
     /**
@@ -43,12 +82,49 @@ public class SkipList implements CommonOperations {
         return maxLevel;
     }
 
+    /**
+     * Get the probability of promoting a node to the upper level
+     */
+    public double getProbability() {
+        return probability;
+    }
+
+    /**
+     * Get the cap of the maximum level
+     */
+    public int getMaxLevelCap() {
+        return maxLevelCap;
+    }
+
+    /**
+     * Get the number of nodes on all the levels, start and end nodes included
+     * A key has one node on the bottom level and one more on every level it is promoted to
+     */
+    public int getNodeCount() {
+        int count = 0;
+        for (SkipListNode levelStart = start; levelStart != null; levelStart = levelStart.getDown()) {
+            for (SkipListNode node = levelStart; node != null; node = node.getSuccessor()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * Insert the key-value pair into the skip list
      * Return the node
      */
     @Override
     public SkipListNode insertElement(Integer key, String value) {
+        return insertElement(key.intValue(), value);
+    }
+
+    /**
+     * Insert the key-value pair into the skip list
+     * Return the node
+     */
+    @Override
+    public SkipListNode insertElement(int key, String value) {
         SkipListNode closestNodeAfter = closestNodeAfter(key);
 
         // If closestNodeAfter.getPredecessor().getKey() == key,
@@ -67,13 +143,10 @@ public class SkipList implements CommonOperations {
         // We start from bottom level, thus the currentLevel is 1
         int currentLevel = 1;
 
-        // Flip coins
-        // random.nextInt return the uniformly distributed
-        // integer between 0 (inclusive) and n (exclusive).
-        // Therefore, n = 2. We have 50% chance for getting either face of the coin
-        // 0 represents the tail of the coin, we stop promoting the node to the upper level list
-        // 1 represents the head of the coin, we keep promoting the node to the upper level list
-        while (random.nextInt(2) == 1) {
+        // Flip all the coins at once
+        // The node is promoted until it reaches "height" levels
+        int height = randomHeight();
+        while (currentLevel < height) {
             // Create a new level if necessary
             if (currentLevel >= maxLevel) {
                 maxLevel++;
@@ -108,6 +181,234 @@ public class SkipList implements CommonOperations {
         return newBottomNode;
     }
 
+    /**
+     * Load the sorted key-value pairs into the empty skip list in one pass, O(n)
+     * If "perfectlySpaced" is true, every (1 / probability)^i-th key is promoted to level i + 1
+     * Else the levels are random, the same as insertElement
+     * If the skip list is not empty or the keys are not strictly increasing,
+     * then report the error and return false
+     */
+    public boolean loadSorted(int[] keys, String[] values, boolean perfectlySpaced) {
+        if (size != 0) {
+            System.out.println("Error: Load sorted keys into a non-empty skip list");
+            return false;
+        }
+        if (keys.length != values.length) {
+            System.out.println("Error: Load " + keys.length + " keys with " + values.length + " values");
+            return false;
+        }
+        for (int i = 1; i < keys.length; i++) {
+            if (keys[i - 1] >= keys[i]) {
+                System.out.println("Error: Load unsorted or replicated key: " + keys[i]);
+                return false;
+            }
+        }
+
+        // last[i] is the last node linked in level i + 1 so far
+        SkipListNode[] last = new SkipListNode[maxLevelCap];
+        last[0] = start;
+        int branching = Math.max(2, (int) Math.round(1 / probability));
+
+        for (int i = 0; i < keys.length; i++) {
+            int height = perfectlySpaced ? spacedHeight(i + 1, branching) : randomHeight();
+            SkipListNode lowerNode = null;
+            for (int level = 0; level < height; level++) {
+                // Create a new level if necessary
+                if (level >= maxLevel) {
+                    maxLevel++;
+                    SkipListNode newStart = new SkipListNode(SkipListNode.START, null);
+                    SkipListNode newEnd = new SkipListNode(SkipListNode.END, null);
+                    linkVertical(newStart, start);
+                    linkVertical(newEnd, end);
+                    start = newStart;
+                    end = newEnd;
+                    last[level] = newStart;
+                }
+
+                // Only the node in the bottom level stores the value
+                SkipListNode newNode = new SkipListNode(keys[i], level == 0 ? values[i] : null);
+                linkHorizontal(last[level], newNode);
+                if (lowerNode != null) {
+                    linkVertical(newNode, lowerNode);
+                }
+                last[level] = newNode;
+                lowerNode = newNode;
+            }
+        }
+
+        // Close every level with its "end" node
+        SkipListNode levelEnd = end;
+        for (int level = maxLevel - 1; level >= 0; level--) {
+            linkHorizontal(last[level], levelEnd);
+            levelEnd = levelEnd.getDown();
+        }
+
+        size = keys.length;
+        return true;
+    }
+
+    /**
+     * Get the number of levels of the rank-th key (from 1) in a perfectly spaced skip list,
+     * that is one more than the times "branching" divides the rank
+     */
+    private int spacedHeight(int rank, int branching) {
+        int height = 1;
+        while (height < maxLevelCap && rank % branching == 0) {
+            rank /= branching;
+            height++;
+        }
+        return height;
+    }
+
+    /**
+     * Insert a batch of key-value pairs into the skip list
+     * The batch is sorted and inserted from left to right,
+     * and the search of every key resumes from the nodes before the previous key
+     * Return the number of inserted pairs
+     */
+    public int insertAll(int[] keys, String[] values) {
+        if (keys.length != values.length) {
+            System.out.println("Error: Insert " + keys.length + " keys with " + values.length + " values");
+            return 0;
+        }
+
+        // Sort the indexes by key, the key is in the high 32 bits
+        long[] order = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            order[i] = ((long) keys[i] << 32) | i;
+        }
+        Arrays.sort(order);
+
+        SkipListNode[] update = newUpdateVector();
+        int inserted = 0;
+        for (long entry : order) {
+            int key = (int) (entry >> 32);
+            String value = values[(int) entry];
+            searchFrom(update, key);
+
+            // If the key has already existed in the skip list,
+            // or it is the same as the previous key of the batch
+            // Report the Error
+            if (update[0].getSuccessor().getKey() == key || update[0].getKey() == key) {
+                System.out.println("Error: Insert replicated key: " + key);
+                continue;
+            }
+
+            SkipListNode newNode = new SkipListNode(key, value);
+            insertBefore(update[0].getSuccessor(), newNode);
+            update[0] = newNode;
+
+            int height = randomHeight();
+            for (int level = 1; level < height; level++) {
+                // Create a new level if necessary
+                if (level >= maxLevel) {
+                    maxLevel++;
+                    SkipListNode newStart = new SkipListNode(SkipListNode.START, null);
+                    SkipListNode newEnd = new SkipListNode(SkipListNode.END, null);
+                    linkHorizontal(newStart, newEnd);
+                    linkVertical(newStart, start);
+                    linkVertical(newEnd, end);
+                    start = newStart;
+                    end = newEnd;
+                    update[level] = newStart;
+                }
+
+                // The new node is the node before the next key in every level it lives in
+                SkipListNode upperNewNode = new SkipListNode(key, null);
+                insertBefore(update[level].getSuccessor(), upperNewNode);
+                linkVertical(upperNewNode, newNode);
+                update[level] = upperNewNode;
+                newNode = upperNewNode;
+            }
+
+            size++;
+            inserted++;
+        }
+        return inserted;
+    }
+
+    /**
+     * Remove a batch of keys from the skip list
+     * The batch is sorted and removed from left to right,
+     * and the search of every key resumes from the nodes before the previous key
+     * Return the number of removed keys
+     */
+    public int removeAll(int[] keys) {
+        int[] sortedKeys = keys.clone();
+        Arrays.sort(sortedKeys);
+
+        SkipListNode[] update = newUpdateVector();
+        int removed = 0;
+        for (int key : sortedKeys) {
+            searchFrom(update, key);
+
+            // If the node does not exists, then skip it
+            SkipListNode node = update[0].getSuccessor();
+            if (node.getKey() != key) {
+                continue;
+            }
+
+            // Delete the bottom level node and the upper level nodes
+            // The nodes in "update" are before the key, so they stay valid
+            linkHorizontal(node.getPredecessor(), node.getSuccessor());
+            while (node.getUp() != null) {
+                node = node.getUp();
+                linkHorizontal(node.getPredecessor(), node.getSuccessor());
+            }
+
+            size--;
+            removed++;
+        }
+
+        // Remove unnecessary upper level
+        while (start.getSuccessor() == end && maxLevel > 1) {
+            start = start.getDown();
+            start.setUp(null);
+            end = end.getDown();
+            end.setUp(null);
+            maxLevel--;
+        }
+        return removed;
+    }
+
+    /**
+     * Get the update vector for a batch
+     * update[i] is the last node before the current key in level i + 1,
+     * and it starts from the "start" node of every level
+     */
+    private SkipListNode[] newUpdateVector() {
+        SkipListNode[] update = new SkipListNode[maxLevelCap];
+        SkipListNode node = start;
+        for (int level = maxLevel - 1; level >= 0; level--) {
+            update[level] = node;
+            node = node.getDown();
+        }
+        return update;
+    }
+
+    /**
+     * Move the update vector to the last nodes before "key",
+     * which should not be before the previous key of the batch
+     * In every level, go right from either update[i] or the node we came down to,
+     * whichever is further right
+     */
+    private void searchFrom(SkipListNode[] update, int key) {
+        SkipListNode node = update[maxLevel - 1];
+        for (int level = maxLevel - 1; level >= 0; level--) {
+            if (level < maxLevel - 1) {
+                node = node.getDown();
+                if (update[level].getKey() > node.getKey()) {
+                    node = update[level];
+                }
+            }
+            // Go right
+            while (node.getSuccessor().getKey() < key) {
+                node = node.getSuccessor();
+            }
+            update[level] = node;
+        }
+    }
+
     /**
      * Find the element whose key == "key"
      * If the element exists, then return it
@@ -115,10 +416,20 @@ public class SkipList implements CommonOperations {
      */
     @Override
     public SkipListNode findElement(Integer key) {
+        return findElement(key.intValue());
+    }
+
+    /**
+     * Find the element whose key == "key"
+     * If the element exists, then return it
+     * Else return null
+     */
+    @Override
+    public SkipListNode findElement(int key) {
         SkipListNode node = start;
         while (true) {
             // Go right
-            while (key.compareTo(node.getSuccessor().getKey()) >= 0) {
+            while (key >= node.getSuccessor().getKey()) {
                 node = node.getSuccessor();
             }
 
@@ -140,12 +451,12 @@ public class SkipList implements CommonOperations {
                 }
                 // If this is the bottom list
                 else {
-                    while (key.compareTo(node.getSuccessor().getKey()) >= 0) {
+                    while (key >= node.getSuccessor().getKey()) {
                         node = node.getSuccessor();
                     }
                     // If we find the node,
                     // then return it
-                    if (key.compareTo(node.getKey()) == 0) {
+                    if (node.getKey() == key) {
                         return node;
                     }
                     // If we do not find the node,
@@ -163,6 +474,15 @@ public class SkipList implements CommonOperations {
      */
     @Override
     public Integer closestKeyAfter(Integer key) {
+        return closestNodeAfter(key.intValue()).getKey();
+    }
+
+    /**
+     * Find the node whose key is the closest key after the "key"
+     * If it does not exist, return NO_KEY (the key of node "end")
+     */
+    @Override
+    public int closestKeyAfter(int key) {
         return closestNodeAfter(key).getKey();
     }
 
@@ -172,10 +492,27 @@ public class SkipList implements CommonOperations {
      */
     @Override
     public SkipListNode closestNodeAfter(Integer key) {
+        return closestNodeAfter(key.intValue());
+    }
+
+    /**
+     * Find the closest node which key after the "key"
+     * If it does not exits, return node "end" in the bottom level
+     */
+    @Override
+    public SkipListNode closestNodeAfter(int key) {
         SkipListNode node = start;
+        // No key is after Integer.MAX_VALUE, and the walk would go past node "end"
+        if (key == SkipListNode.END) {
+            node = end;
+            while (node.getDown() != null) {
+                node = node.getDown();
+            }
+            return node;
+        }
         while (true) {
             // Go right
-            while (key.compareTo(node.getSuccessor().getKey()) >= 0) {
+            while (key >= node.getSuccessor().getKey()) {
                 node = node.getSuccessor();
             }
 
@@ -198,7 +535,7 @@ public class SkipList implements CommonOperations {
                 // We get the bottom list
                 else {
                     // Find the "closest node after" node
-                    while (key.compareTo(node.getSuccessor().getKey()) >= 0) {
+                    while (key >= node.getSuccessor().getKey()) {
                         node = node.getSuccessor();
                     }
                     return node.getSuccessor();
@@ -207,11 +544,187 @@ public class SkipList implements CommonOperations {
         }
     }
 
+    /**
+     * Iterate the nodes whose from <= key < to in ascending order
+     * One search, then O(1) per node
+     */
+    public Iterator<SkipListNode> range(int from, int to) {
+        return new SkipListIterator(ceilingNode(from), to, false);
+    }
+
+    /**
+     * Iterate the nodes whose key >= "key" in ascending order
+     */
+    public Iterator<SkipListNode> tailFrom(int key) {
+        return new SkipListIterator(ceilingNode(key), SkipListNode.END, false);
+    }
+
+    /**
+     * Iterate the nodes whose from <= key < to in descending order
+     */
+    public Iterator<SkipListNode> descendingRange(int from, int to) {
+        SkipListNode node = closestNodeAfter(to).getPredecessor();
+        if (node.getKey() == to) {
+            node = node.getPredecessor();
+        }
+        return new SkipListIterator(node, from, true);
+    }
+
+    /**
+     * Iterate the nodes whose key <= "key" in descending order
+     */
+    public Iterator<SkipListNode> descendingFrom(int key) {
+        return new SkipListIterator(closestNodeAfter(key).getPredecessor(), SkipListNode.START, true);
+    }
+
+    /**
+     * Stream the nodes whose from <= key < to in ascending order
+     */
+    public Stream<SkipListNode> rangeStream(int from, int to) {
+        return stream(range(from, to));
+    }
+
+    /**
+     * Stream the nodes whose key >= "key" in ascending order
+     */
+    public Stream<SkipListNode> tailStream(int key) {
+        return stream(tailFrom(key));
+    }
+
+    private Stream<SkipListNode> stream(Iterator<SkipListNode> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Find the first node whose key >= "key" in the bottom level
+     * If it does not exits, return node "end"
+     */
+    private SkipListNode ceilingNode(int key) {
+        SkipListNode node = closestNodeAfter(key).getPredecessor();
+        // Skip "start" and the nodes before the key
+        if (node.getKey() != key || node.getPredecessor() == null) {
+            node = node.getSuccessor();
+        }
+        return node;
+    }
+
+    /**
+     * Create a finger for findElement and closestNodeAfter
+     */
+    public SkipListFinger newFinger() {
+        return new SkipListFinger();
+    }
+
+    /**
+     * Find the element whose key == "key", starting from the finger
+     * If the element exists, then return it
+     * Else return null
+     */
+    public SkipListNode findElement(int key, SkipListFinger finger) {
+        SkipListNode node = fingerSearch(key, finger);
+        if (node.getKey() == key) {
+            return node;
+        }
+        return null;
+    }
+
+    /**
+     * Find the closest key after the "key", starting from the finger
+     * If it does not exist, return NO_KEY (the key of node "end")
+     */
+    public int closestKeyAfter(int key, SkipListFinger finger) {
+        return fingerSearch(key, finger).getSuccessor().getKey();
+    }
+
+    /**
+     * Find the closest node which key after the "key", starting from the finger
+     * If it does not exits, return node "end" in the bottom level
+     */
+    public SkipListNode closestNodeAfter(int key, SkipListFinger finger) {
+        return fingerSearch(key, finger).getSuccessor();
+    }
+
+    /**
+     * Find the last node whose key <= "key" in the bottom level,
+     * starting from the node of the finger, then move the finger to it
+     * Going up from the finger until the level is long enough to jump over the key,
+     * and then going down, costs O(log d) where d is the distance from the finger
+     */
+    private SkipListNode fingerSearch(int key, SkipListFinger finger) {
+        SkipListNode node;
+
+        // If the finger is empty or its node has been removed,
+        // then start from "start" in the top level
+        if (!finger.isValid()) {
+            node = start;
+        }
+
+        // If the key is after the finger,
+        // go right in the current level until the successor is after the key
+        // and go up whenever we meet a node with an upper level
+        else if (finger.getNode().getKey() <= key) {
+            node = finger.getNode();
+            while (node.getSuccessor().getKey() <= key) {
+                node = node.getSuccessor();
+                while (node.getUp() == null && node.getSuccessor().getKey() <= key) {
+                    node = node.getSuccessor();
+                }
+                if (node.getUp() == null) {
+                    break;
+                }
+                node = node.getUp();
+            }
+        }
+
+        // If the key is before the finger,
+        // go left in the current level until the node is not after the key
+        // and go up whenever we meet a node with an upper level
+        else {
+            node = finger.getNode();
+            while (node.getKey() > key) {
+                node = node.getPredecessor();
+                while (node.getUp() == null && node.getKey() > key) {
+                    node = node.getPredecessor();
+                }
+                if (node.getKey() <= key) {
+                    break;
+                }
+                node = node.getUp();
+            }
+        }
+
+        // Go down to the bottom level
+        while (true) {
+            // Go right
+            while (key >= node.getSuccessor().getKey()) {
+                node = node.getSuccessor();
+            }
+            if (node.getDown() == null) {
+                break;
+            }
+            node = node.getDown();
+        }
+
+        finger.setNode(node);
+        return node;
+    }
+
     /**
      * Remove the node whose key == "key"
      * and then return it
      */
+    @Override
     public SkipListNode removeElement(Integer key) {
+        return removeElement(key.intValue());
+    }
+
+    /**
+     * Remove the node whose key == "key"
+     * and then return it
+     */
+    @Override
+    public SkipListNode removeElement(int key) {
         SkipListNode toRemoveNode = findElement(key);
         // If the node does not exists, then return null
         if (toRemoveNode == null) {
@@ -250,6 +763,16 @@ public class SkipList implements CommonOperations {
      */
     @Override
     public boolean findElementBoolean(Integer key) {
+        return findElementBoolean(key.intValue());
+    }
+
+    /**
+     * Find the Element
+     * If we find the node, then return true
+     * Else return false
+     */
+    @Override
+    public boolean findElementBoolean(int key) {
         if (findElement(key) != null) {
             return true;
         } else {
@@ -257,6 +780,22 @@ public class SkipList implements CommonOperations {
         }
     }
 
+    /**
+     * Get the number of levels of a new node
+     * If probability == 1 / 2^k, every k trailing zeros of one random word
+     * are k tails in a row, that is one head of the biased coin
+     * Else invert the geometric distribution with one random double
+     */
+    private int randomHeight() {
+        int promotions;
+        if (promotionShift > 0) {
+            promotions = Long.numberOfTrailingZeros(ThreadLocalRandom.current().nextLong()) / promotionShift;
+        } else {
+            promotions = (int) (Math.log(1.0 - ThreadLocalRandom.current().nextDouble()) / logProbability);
+        }
+        return Math.min(promotions + 1, maxLevelCap);
+    }
+
     /**
      * Insert newNode just in front of the node
      */
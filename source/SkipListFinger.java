@@ -0,0 +1,36 @@
+/**
+ * SkipListFinger.java
+ * Implementing the search finger of the skip list
+ * A finger remembers the bottom level node where the last search ended,
+ * so that the next search near it can start from there instead of "start".
+ * A finger must only be used with the skip list that set it.
+ */
+
+public class SkipListFinger {
+    private SkipListNode node;
+
+    /**
+     * Constructor
+     * Initialize an empty finger, the first search starts from "start"
+     */
+    public SkipListFinger() {
+        this.node = null;
+    }
+
+    public SkipListNode getNode() {
+        return node;
+    }
+
+    public void setNode(SkipListNode node) {
+        this.node = node;
+    }
+
+    /**
+     * Whether the finger points to a node still in the skip list
+     * A removed node keeps its links, but its predecessor no longer links back to it
+     */
+    public boolean isValid() {
+        return node != null
+                && (node.getPredecessor() == null || node.getPredecessor().getSuccessor() == node);
+    }
+}
@@ -0,0 +1,49 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * SkipListIterator.java
+ * Implementing the iterator over a key range of the skip list
+ * It walks the successor (or predecessor) links in the bottom level,
+ * so it costs O(1) per node after the first search.
+ * The skip list should not be modified while iterating.
+ */
+
+public class SkipListIterator implements Iterator<SkipListNode> {
+    private SkipListNode node; // the next node to return
+    // Ascending: stop at the first key >= bound
+    // Descending: stop at the first key < bound
+    private final int bound;
+    private final boolean descending;
+
+    /**
+     * Constructor
+     * Initialize the iterator starting from "node" in the bottom level
+     */
+    public SkipListIterator(SkipListNode node, int bound, boolean descending) {
+        this.node = node;
+        this.bound = bound;
+        this.descending = descending;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (descending) {
+            // Only "start" has no predecessor
+            return node.getPredecessor() != null && node.getKey() >= bound;
+        } else {
+            // "end" has the biggest key, so it is never returned
+            return node.getKey() < bound;
+        }
+    }
+
+    @Override
+    public SkipListNode next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        SkipListNode current = node;
+        node = descending ? node.getPredecessor() : node.getSuccessor();
+        return current;
+    }
+}
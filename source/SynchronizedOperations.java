@@ -0,0 +1,70 @@
+/**
+ * SynchronizedOperations.java
+ * Wrapping any AVL tree or skip list with one lock, so it can be shared by threads
+ * Every operation holds the lock of the wrapper, so only one thread is in
+ * the wrapped structure at a time, readers included.
+ */
+
+public class SynchronizedOperations implements CommonOperations {
+    private final CommonOperations structure;
+
+    /**
+     * Constructor
+     * Wrap the structure, it should not be used without the wrapper any more
+     */
+    public SynchronizedOperations(CommonOperations structure) {
+        if (structure == null) {
+            throw new IllegalArgumentException("The structure is null");
+        }
+        this.structure = structure;
+    }
+
+    public CommonOperations getStructure() {
+        return structure;
+    }
+
+    @Override
+    public synchronized Object insertElement(Integer key, String value) {
+        return structure.insertElement(key, value);
+    }
+
+    @Override
+    public synchronized Object findElement(Integer key) {
+        return structure.findElement(key);
+    }
+
+    @Override
+    public synchronized Integer closestKeyAfter(Integer key) {
+        return structure.closestKeyAfter(key);
+    }
+
+    @Override
+    public synchronized Object removeElement(Integer key) {
+        return structure.removeElement(key);
+    }
+
+    @Override
+    public synchronized boolean findElementBoolean(Integer key) {
+        return structure.findElementBoolean(key);
+    }
+
+    @Override
+    public synchronized Object closestNodeAfter(Integer key) {
+        return structure.closestNodeAfter(key);
+    }
+
+    @Override
+    public synchronized int getSize() {
+        return structure.getSize();
+    }
+
+    @Override
+    public synchronized void destroy() {
+        structure.destroy();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return structure.toString();
+    }
+}
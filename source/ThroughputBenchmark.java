@@ -0,0 +1,365 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * ThroughputBenchmark.java
+ * Benchmark the throughput of the AVL trees and skip lists shared by 1..N threads
+ * Every thread runs a mix of operations (like the YCSB workloads) on the same structure.
+ * The structures which are not thread-safe are wrapped in SynchronizedOperations (one lock),
+ * the concurrent ones are used directly.
+ * Every thread generates its operations and keys before it starts, then all the threads
+ * run a warmup phase and a measurement phase, and count their operations in the measurement.
+ * Lookups use key(0..2 * size - 1) of Benchmark, so about half of them exist.
+ * Thread t inserts its own new keys in order and removes its own oldest key,
+ * so insertions never collide and removals always hit.
+ * The own keys of a thread are a window of at most size / (8 * threads) keys.
+ * When it is full, an insertion first removes the oldest own key, so the structure
+ * stays within 1/8 above "size" whatever the mix and the number of threads.
+ *
+ * Reports for every mix, structure and number of threads:
+ * ops/s      - the operations per second of all the threads
+ * speedup    - ops/s divided by the ops/s of 1 thread
+ * efficiency - speedup divided by the number of threads
+ * min, max   - the operations per second of the slowest and the fastest thread
+ * fairness   - Jain's fairness index of the threads, 1 when they all did the same
+ * final size - the size of the structure after the measurement
+ *
+ * Usage: java ThroughputBenchmark [-structures AVLTree,ConcurrentSkipList]
+ *                                 [-mixes read-heavy,balanced,10/80/10/0] [-threads 1,2,4,8]
+ *                                 [-size 16] [-warmup 500] [-time 1000]
+ * A mix is a name of MIX_NAMES or the percentages insert/find/closest/remove,
+ * size is an exponent of 2, warmup and time are milliseconds.
+ */
+
+public class ThroughputBenchmark {
+    // The percentages of insertElement, findElement, closestKeyAfter and removeElement
+    public final static String[] MIX_NAMES = {"read-heavy", "balanced", "scan-heavy", "churn"};
+    public final static int[][] MIXES = {{5, 95, 0, 0}, {50, 50, 0, 0}, {5, 0, 95, 0}, {25, 50, 0, 25}};
+
+    // The structures which are thread-safe without a lock
+    public final static String[] CONCURRENT_STRUCTURES = {"ConcurrentSkipList", "ConcurrentAVLTree",
+            "PersistentAVLTree"};
+
+    private final static String VALUE = "";
+    private final static int STREAM_LENGTH = 1 << 14; // the operations a thread generates and repeats
+    private final static int BATCH = 64; // the operations between two reads of the phase
+    private final static long SEED = 42L;
+    private final static int WINDOW_FRACTION = 8; // all the own keys are at most size / WINDOW_FRACTION
+
+    private final static int WARMUP = 0;
+    private final static int MEASUREMENT = 1;
+    private final static int STOP = 2;
+
+    // The blackhole, every thread writes what it consumed into it
+    public static volatile int sink;
+
+    private final CommonOperations structure;
+    private final int size;
+    private final int[] mix;
+    private final int threads;
+    private final long[] operationCounts; // the operations of every thread in the measurement
+    private volatile int phase;
+    private volatile String failure;
+
+    public int getStructureSize() {
+        return structure.getSize();
+    }
+
+    /**
+     * Constructor
+     * Fill the structure with "size" keys for "threads" threads running "mix"
+     */
+    public ThroughputBenchmark(CommonOperations structure, int size, int[] mix, int threads) {
+        if (mix.length != 4 || mix[0] + mix[1] + mix[2] + mix[3] != 100) {
+            throw new IllegalArgumentException("The mix should be 4 percentages adding up to 100");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        this.structure = structure;
+        this.size = size;
+        this.mix = mix;
+        this.threads = threads;
+        this.operationCounts = new long[threads];
+        for (int i = 0; i < size; i++) {
+            structure.insertElement(Benchmark.key(i), VALUE);
+        }
+    }
+
+    /**
+     * Create the structure by its class name,
+     * wrapped in SynchronizedOperations unless it is concurrent
+     */
+    public static CommonOperations newStructure(String name) {
+        CommonOperations structure = Benchmark.newStructure(name);
+        return isConcurrent(name) ? structure : new SynchronizedOperations(structure);
+    }
+
+    public static boolean isConcurrent(String name) {
+        for (String concurrent : CONCURRENT_STRUCTURES) {
+            if (concurrent.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the mix by its name, or parse the percentages "insert/find/closest/remove"
+     * Return null if it is invalid
+     */
+    public static int[] parseMix(String mix) {
+        for (int i = 0; i < MIX_NAMES.length; i++) {
+            if (MIX_NAMES[i].equals(mix)) {
+                return MIXES[i];
+            }
+        }
+        String[] fields = mix.split("/");
+        if (fields.length != 4) {
+            return null;
+        }
+        int[] percentages = new int[4];
+        int total = 0;
+        try {
+            for (int i = 0; i < 4; i++) {
+                percentages[i] = Integer.parseInt(fields[i]);
+                if (percentages[i] < 0) {
+                    return null;
+                }
+                total += percentages[i];
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return (total == 100) ? percentages : null;
+    }
+
+    /**
+     * Run all the threads for "warmupNanos", then measure them for "nanos"
+     * Return the operations per second of every thread,
+     * or null if a thread failed
+     */
+    public double[] run(long warmupNanos, long nanos) throws InterruptedException {
+        phase = WARMUP;
+        failure = null;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            Thread worker = new Thread(() -> work(thread), "worker-" + t);
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+
+        Thread.sleep(warmupNanos / 1_000_000L);
+        phase = MEASUREMENT;
+        long start = System.nanoTime();
+        Thread.sleep(nanos / 1_000_000L);
+        phase = STOP;
+        long end = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        if (failure != null) {
+            System.out.println("Error: " + failure);
+            return null;
+        }
+        double seconds = (end - start) / 1e9;
+        double[] throughputs = new double[threads];
+        for (int t = 0; t < threads; t++) {
+            throughputs[t] = operationCounts[t] / seconds;
+        }
+        return throughputs;
+    }
+
+    /**
+     * The loop of one thread
+     */
+    private void work(int thread) {
+        // Generate the operations and the lookup keys
+        Random random = new Random(SEED + thread);
+        byte[] operations = new byte[STREAM_LENGTH];
+        int[] keys = new int[STREAM_LENGTH];
+        for (int i = 0; i < STREAM_LENGTH; i++) {
+            int dice = random.nextInt(100);
+            if (dice < mix[0]) {
+                operations[i] = Workload.INSERT;
+            } else if (dice < mix[0] + mix[1]) {
+                operations[i] = Workload.FIND;
+            } else if (dice < mix[0] + mix[1] + mix[2]) {
+                operations[i] = Workload.CLOSEST_KEY_AFTER;
+            } else {
+                operations[i] = Workload.REMOVE;
+            }
+            keys[i] = Benchmark.key(random.nextInt(2 * size));
+        }
+
+        // The own keys of the thread are key(size + thread + k * threads) for oldest <= k < next
+        int window = Math.max(1, size / (WINDOW_FRACTION * threads));
+        int oldest = 0;
+        int next = 0;
+        int consumed = 0;
+        long count = 0;
+        int seen = WARMUP;
+        int i = 0;
+        try {
+            while (true) {
+                for (int b = 0; b < BATCH; b++) {
+                    byte operation = operations[i];
+                    if (operation == Workload.REMOVE && oldest == next) {
+                        operation = Workload.INSERT;
+                    }
+                    switch (operation) {
+                        case Workload.INSERT:
+                            if (next - oldest == window) {
+                                structure.removeElement(Benchmark.key(size + thread + oldest * threads));
+                                oldest++;
+                            }
+                            structure.insertElement(Benchmark.key(size + thread + next * threads), VALUE);
+                            next++;
+                            break;
+                        case Workload.FIND:
+                            consumed += (structure.findElement(keys[i]) != null) ? 1 : 0;
+                            break;
+                        case Workload.CLOSEST_KEY_AFTER:
+                            Integer key = structure.closestKeyAfter(keys[i]);
+                            consumed += (key != null) ? key : 0;
+                            break;
+                        default:
+                            structure.removeElement(Benchmark.key(size + thread + oldest * threads));
+                            oldest++;
+                            break;
+                    }
+                    i = (i + 1) & (STREAM_LENGTH - 1);
+                }
+                count += BATCH;
+
+                int current = phase;
+                if (current != seen) {
+                    if (current == STOP) {
+                        break;
+                    }
+                    // The measurement starts
+                    count = 0;
+                    seen = current;
+                }
+            }
+        } catch (RuntimeException e) {
+            failure = Thread.currentThread().getName() + ": " + e;
+            phase = STOP;
+        }
+        operationCounts[thread] = count;
+        sink = consumed;
+    }
+
+    /**
+     * Jain's fairness index, (sum x)^2 / (n * sum x^2)
+     */
+    public static double fairness(double[] throughputs) {
+        double sum = 0;
+        double squares = 0;
+        for (double throughput : throughputs) {
+            sum += throughput;
+            squares += throughput * throughput;
+        }
+        return (squares == 0) ? 1.0 : sum * sum / (throughputs.length * squares);
+    }
+
+    private static int[] parseThreads(String threads) {
+        String[] fields = threads.split(",");
+        int[] counts = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            counts[i] = Integer.parseInt(fields[i].trim());
+        }
+        return counts;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String[] structures = {"AVLTree", "SkipList", "ConcurrentAVLTree", "ConcurrentSkipList"};
+        String[] mixNames = MIX_NAMES;
+        // Powers of 2 up to the number of processors, at least up to 4
+        List<Integer> defaultThreads = new ArrayList<>();
+        for (int t = 1; t <= Math.max(4, Runtime.getRuntime().availableProcessors()); t *= 2) {
+            defaultThreads.add(t);
+        }
+        int[] threadCounts = defaultThreads.stream().mapToInt(Integer::intValue).toArray();
+        int exponent = 16;
+        long warmupMillis = 500;
+        long millis = 1000;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-structures": structures = args[i + 1].split(","); break;
+                case "-mixes": mixNames = args[i + 1].split(","); break;
+                case "-threads": threadCounts = parseThreads(args[i + 1]); break;
+                case "-size": exponent = Integer.parseInt(args[i + 1]); break;
+                case "-warmup": warmupMillis = Long.parseLong(args[i + 1]); break;
+                case "-time": millis = Long.parseLong(args[i + 1]); break;
+                default:
+                    System.out.println("Error: Unknown option: " + args[i]);
+                    return;
+            }
+        }
+        int[][] mixes = new int[mixNames.length][];
+        for (int i = 0; i < mixNames.length; i++) {
+            mixes[i] = parseMix(mixNames[i]);
+            if (mixes[i] == null) {
+                System.out.println("Error: Unknown mix: " + mixNames[i] + ", use one of "
+                        + String.join(", ", MIX_NAMES) + " or insert/find/closest/remove percentages");
+                return;
+            }
+        }
+
+        System.out.println("Test condition:");
+        System.out.println("Size: " + (1 << exponent) + ", warmup: " + warmupMillis + " ms, time: " + millis
+                + " ms, processors: " + Runtime.getRuntime().availableProcessors() + "\n");
+
+        for (int m = 0; m < mixes.length; m++) {
+            System.out.println("Mix " + mixNames[m] + " (insert " + mixes[m][0] + "%, find " + mixes[m][1]
+                    + "%, closest " + mixes[m][2] + "%, remove " + mixes[m][3] + "%)");
+            System.out.println("---------------------------------------"
+                    + "-------------------------------------------------------------------------");
+            System.out.println(String.format("|%-28s|%7s|%12s|%7s|%10s|%10s|%10s|%8s|%10s|", "Structure",
+                    "Threads", "ops/s", "Speedup", "Efficiency", "Min ops/s", "Max ops/s", "Fairness", "Final size"));
+            for (String name : structures) {
+                String label = name + (isConcurrent(name) ? "" : " (locked)");
+                double single = 0;
+                for (int threads : threadCounts) {
+                    ThroughputBenchmark benchmark;
+                    try {
+                        benchmark = new ThroughputBenchmark(newStructure(name), 1 << exponent, mixes[m], threads);
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Error: " + e.getMessage());
+                        return;
+                    }
+                    System.gc();
+                    double[] throughputs = benchmark.run(warmupMillis * 1_000_000L, millis * 1_000_000L);
+                    if (throughputs == null) {
+                        continue;
+                    }
+                    double total = 0;
+                    double min = Double.MAX_VALUE;
+                    double max = 0;
+                    for (double throughput : throughputs) {
+                        total += throughput;
+                        min = Math.min(min, throughput);
+                        max = Math.max(max, throughput);
+                    }
+                    if (threads == 1 || single == 0) {
+                        single = total / threads;
+                    }
+                    double speedup = total / single;
+                    System.out.println(String.format("|%-28s|%7d|%12.0f|%7.2f|%10.2f|%10.0f|%10.0f|%8.3f|%10d|",
+                            label, threads, total, speedup, speedup / threads, min, max, fairness(throughputs),
+                            benchmark.getStructureSize()));
+                }
+            }
+            System.out.println("---------------------------------------"
+                    + "-------------------------------------------------------------------------");
+            System.out.println();
+        }
+    }
+}
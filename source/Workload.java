@@ -0,0 +1,383 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Workload.java
+ * Generating reproducible workloads for the performance tests
+ * All the operations and their keys are generated into primitive arrays before timing,
+ * with a fixed seed, so the timed loop only reads arrays and every run is the same.
+ * The generator keeps the live keys in a LiveKeySet, so an insertion always gets
+ * an absent key and a removal always gets a live key, in O(1).
+ *
+ * Key distributions:
+ * uniform    - every key in [min, max] is equally likely
+ * zipfian    - a few keys are inserted and looked up much more often than others,
+ *              the popular keys are scattered over the key range (scrambled zipfian, YCSB)
+ * sequential - keys are inserted, looked up and removed in ascending order,
+ *              wrapping around to min after max
+ * clustered  - keys are near a few random centers
+ * latest     - the recently inserted keys are looked up most often (YCSB)
+ */
+
+public class Workload {
+    public final static byte INSERT = 0;
+    public final static byte FIND = 1;
+    public final static byte CLOSEST_KEY_AFTER = 2;
+    public final static byte REMOVE = 3;
+
+    public final static int UNIFORM = 0;
+    public final static int ZIPFIAN = 1;
+    public final static int SEQUENTIAL = 2;
+    public final static int CLUSTERED = 3;
+    public final static int LATEST = 4;
+    public final static String[] DISTRIBUTIONS = {"uniform", "zipfian", "sequential", "clustered", "latest"};
+
+    public final static double ZIPFIAN_CONSTANT = 0.99;
+    private final static int ZETA_EXACT_TERMS = 1_000_000;
+    private final static int CLUSTERS = 16;
+    private final static int MAX_ATTEMPTS = 64;
+
+    private final int distribution;
+    private final int min;
+    private final int max;
+    private final long range; // the number of keys in [min, max]
+    private final Random random;
+    private final LiveKeySet live;
+
+    // The zipfian generator, only computed for ZIPFIAN and LATEST
+    private final double zetaN;
+    private final double alpha;
+    private final double eta;
+
+    // sequential: the live keys are the window [nextRemove, nextInsert) of the circular key range
+    private int nextInsert; // sequential: the next key to insert
+    private int nextLookup; // sequential: the next key to look up
+    private int nextRemove; // sequential: the oldest key which may be live
+    private final int[] centers; // clustered: the centers of the clusters
+    private final long spread; // clustered: the standard deviation around a center
+    private int[] history; // latest: the inserted keys in order
+    private int inserted; // latest: the number of inserted keys
+
+    private byte[] operations;
+    private int[] keys;
+
+    /**
+     * Constructor
+     * Initialize the generator of keys in [min, max] with the distribution and the seed
+     */
+    public Workload(int distribution, int min, int max, long seed) {
+        if (distribution < UNIFORM || distribution > LATEST) {
+            throw new IllegalArgumentException("Unknown distribution: " + distribution);
+        }
+        if (min >= max) {
+            throw new IllegalArgumentException("Min should be less than max: " + min + " >= " + max);
+        }
+        this.distribution = distribution;
+        this.min = min;
+        this.max = max;
+        this.range = (long) max - min + 1;
+        this.random = new Random(seed);
+        this.live = new LiveKeySet();
+
+        // zeta(range) takes up to ZETA_EXACT_TERMS Math.pow calls
+        if (distribution == ZIPFIAN || distribution == LATEST) {
+            zetaN = zeta(range, ZIPFIAN_CONSTANT);
+            alpha = 1.0 / (1.0 - ZIPFIAN_CONSTANT);
+            eta = (1 - Math.pow(2.0 / range, 1 - ZIPFIAN_CONSTANT)) / (1 - zeta(2, ZIPFIAN_CONSTANT) / zetaN);
+        } else {
+            zetaN = 0;
+            alpha = 0;
+            eta = 0;
+        }
+
+        nextInsert = min;
+        nextLookup = min;
+        nextRemove = min;
+        centers = new int[CLUSTERS];
+        for (int i = 0; i < CLUSTERS; i++) {
+            centers[i] = uniformKey();
+        }
+        spread = Math.max(1, range / 4096);
+        history = new int[16];
+        inserted = 0;
+
+        operations = new byte[0];
+        keys = new int[0];
+    }
+
+    /**
+     * Get the distribution by its name
+     */
+    public static int parseDistribution(String name) {
+        for (int i = 0; i < DISTRIBUTIONS.length; i++) {
+            if (DISTRIBUTIONS[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown distribution: " + name);
+    }
+
+    public int getDistribution() {
+        return distribution;
+    }
+
+    /**
+     * The keys which are live after the generated operations
+     */
+    public LiveKeySet getLive() {
+        return live;
+    }
+
+    /**
+     * The generated operations, INSERT, FIND, CLOSEST_KEY_AFTER or REMOVE
+     */
+    public byte[] getOperations() {
+        return operations;
+    }
+
+    /**
+     * The generated keys, keys[i] is the key of operations[i]
+     */
+    public int[] getKeys() {
+        return keys;
+    }
+
+    /**
+     * Generate "count" keys to insert before the test
+     * They become live
+     */
+    public int[] load(int count) {
+        int[] loaded = new int[Math.max(count, 0)];
+        for (int i = 0; i < loaded.length; i++) {
+            loaded[i] = nextInsertKey();
+        }
+        return loaded;
+    }
+
+    /**
+     * Generate "rounds" rounds of INSERT, FIND, CLOSEST_KEY_AFTER and REMOVE,
+     * so the number of live keys is the same after every round
+     */
+    public void generateRounds(int rounds) {
+        operations = new byte[4 * rounds];
+        keys = new int[4 * rounds];
+        for (int i = 0; i < 4 * rounds; i += 4) {
+            operations[i] = INSERT;
+            keys[i] = nextInsertKey();
+            operations[i + 1] = FIND;
+            keys[i + 1] = nextLookupKey();
+            operations[i + 2] = CLOSEST_KEY_AFTER;
+            keys[i + 2] = nextLookupKey();
+            operations[i + 3] = REMOVE;
+            keys[i + 3] = nextRemoveKey();
+        }
+    }
+
+    /**
+     * Generate "count" random operations with the percentages of INSERT, FIND
+     * and CLOSEST_KEY_AFTER, the rest are REMOVE
+     * A REMOVE becomes an INSERT if there is no live key
+     */
+    public void generate(int count, int insertPercent, int findPercent, int closestPercent) {
+        if (insertPercent < 0 || findPercent < 0 || closestPercent < 0
+                || insertPercent + findPercent + closestPercent > 100) {
+            throw new IllegalArgumentException("Invalid operation mix: " + insertPercent + "/"
+                    + findPercent + "/" + closestPercent);
+        }
+        operations = new byte[count];
+        keys = new int[count];
+        for (int i = 0; i < count; i++) {
+            int dice = random.nextInt(100);
+            if (dice < insertPercent || (dice >= insertPercent + findPercent + closestPercent && live.size() == 0)) {
+                operations[i] = INSERT;
+                keys[i] = nextInsertKey();
+            } else if (dice < insertPercent + findPercent) {
+                operations[i] = FIND;
+                keys[i] = nextLookupKey();
+            } else if (dice < insertPercent + findPercent + closestPercent) {
+                operations[i] = CLOSEST_KEY_AFTER;
+                keys[i] = nextLookupKey();
+            } else {
+                operations[i] = REMOVE;
+                keys[i] = nextRemoveKey();
+            }
+        }
+    }
+
+    /**
+     * Get an absent key to insert, and make it live
+     */
+    private int nextInsertKey() {
+        int key;
+        switch (distribution) {
+            case SEQUENTIAL:
+                if (live.size() >= range) {
+                    throw new IllegalStateException("The key range is used up: " + min + " - " + max);
+                }
+                while (live.contains(nextInsert)) {
+                    nextInsert = nextSequentialKey(nextInsert);
+                }
+                key = nextInsert;
+                nextInsert = nextSequentialKey(nextInsert);
+                break;
+            case ZIPFIAN:
+            case CLUSTERED:
+                key = (distribution == ZIPFIAN) ? zipfianKey() : clusteredKey();
+                for (int i = 0; i < MAX_ATTEMPTS && live.contains(key); i++) {
+                    key = (distribution == ZIPFIAN) ? zipfianKey() : clusteredKey();
+                }
+                if (live.contains(key)) {
+                    key = uniformAbsentKey();
+                }
+                break;
+            default:
+                key = uniformAbsentKey();
+                break;
+        }
+        live.add(key);
+        if (distribution == LATEST) {
+            if (inserted == history.length) {
+                history = Arrays.copyOf(history, 2 * inserted);
+            }
+            history[inserted++] = key;
+        }
+        return key;
+    }
+
+    /**
+     * Get a key to look up, which may be absent
+     */
+    private int nextLookupKey() {
+        switch (distribution) {
+            case ZIPFIAN:
+                return zipfianKey();
+            case SEQUENTIAL:
+                if (live.size() == 0) {
+                    return uniformKey();
+                }
+                // Go through the live keys from the oldest one to the latest one
+                if (nextLookup == nextInsert || !live.contains(nextLookup)) {
+                    nextLookup = oldestSequentialKey();
+                }
+                int key = nextLookup;
+                nextLookup = nextSequentialKey(nextLookup);
+                return key;
+            case CLUSTERED:
+                return clusteredKey();
+            case LATEST:
+                if (inserted == 0) {
+                    return uniformKey();
+                }
+                return history[inserted - 1 - (int) (zipfianRank() % inserted)];
+            default:
+                return uniformKey();
+        }
+    }
+
+    /**
+     * Get a live key to remove, and make it absent
+     * There must be a live key
+     * The popular zipfian keys are not removed more often, or they would be absent most of the time
+     */
+    private int nextRemoveKey() {
+        int key;
+        switch (distribution) {
+            case SEQUENTIAL:
+                key = oldestSequentialKey();
+                break;
+            case CLUSTERED:
+                key = clusteredKey();
+                break;
+            default:
+                key = live.random(random);
+                break;
+        }
+        if (!live.contains(key)) {
+            key = live.random(random);
+        }
+        live.remove(key);
+        return key;
+    }
+
+    private int nextSequentialKey(int key) {
+        return (key == max) ? min : key + 1;
+    }
+
+    /**
+     * Get the oldest live key of the sequential window
+     * There must be a live key
+     */
+    private int oldestSequentialKey() {
+        while (!live.contains(nextRemove)) {
+            nextRemove = nextSequentialKey(nextRemove);
+        }
+        return nextRemove;
+    }
+
+    private int uniformKey() {
+        return (int) (min + Math.floorMod(random.nextLong(), range));
+    }
+
+    private int uniformAbsentKey() {
+        if (live.size() >= range) {
+            throw new IllegalStateException("The key range is used up: " + min + " - " + max);
+        }
+        int key = uniformKey();
+        while (live.contains(key)) {
+            key = uniformKey();
+        }
+        return key;
+    }
+
+    private int clusteredKey() {
+        long key = centers[random.nextInt(CLUSTERS)] + Math.round(random.nextGaussian() * spread);
+        return (int) Math.max(min, Math.min(max, key));
+    }
+
+    /**
+     * A zipfian rank in [0, range), 0 is the most popular one
+     * (Gray et al., "Quickly generating billion-record synthetic databases")
+     */
+    private long zipfianRank() {
+        double u = random.nextDouble();
+        double uz = u * zetaN;
+        if (uz < 1.0) {
+            return 0;
+        }
+        if (uz < 1.0 + Math.pow(0.5, ZIPFIAN_CONSTANT)) {
+            return 1;
+        }
+        long rank = (long) (range * Math.pow(eta * u - eta + 1, alpha));
+        return Math.min(rank, range - 1);
+    }
+
+    /**
+     * Scatter the zipfian rank over the key range with the FNV-1a hash,
+     * so the popular keys are not all next to each other
+     */
+    private int zipfianKey() {
+        long rank = zipfianRank();
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < 8; i++) {
+            hash ^= (rank >>> (8 * i)) & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return (int) (min + Math.floorMod(hash, range));
+    }
+
+    /**
+     * The sum of 1 / i^theta for i in [1, n]
+     * The terms after ZETA_EXACT_TERMS are added up by the integral (midpoint rule)
+     */
+    private static double zeta(long n, double theta) {
+        long exact = Math.min(n, ZETA_EXACT_TERMS);
+        double sum = 0;
+        for (long i = 1; i <= exact; i++) {
+            sum += 1.0 / Math.pow(i, theta);
+        }
+        if (n > exact) {
+            sum += (Math.pow(n + 0.5, 1 - theta) - Math.pow(exact + 0.5, 1 - theta)) / (1 - theta);
+        }
+        return sum;
+    }
+}